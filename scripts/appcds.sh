@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the fast-startup jar from a training run (JDK 13+).
+#
+#   mvn -Pfast-startup package
+#   scripts/appcds.sh [application arguments...]
+#
+# The jar is unpacked to target/fast-startup (CDS only archives classes from plain jars on
+# the class path, not from nested jars or directories), started once with -XX:ArchiveClassesAtExit, warmed up with a few requests
+# and stopped. Start it with the archive afterwards:
+#
+#   java -XX:SharedArchiveFile=target/fast-startup/app.jsa -cp "$(cat target/fast-startup/classpath)" \
+#        -Dspring.profiles.active=lazy com.example.demo.TechhubApplication
+#
+# EXTRA_CLASSPATH is appended to the class path (e.g. a JDBC driver for a training database).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+ROOT=$(pwd)
+OUT="$ROOT/target/fast-startup"
+PORT=${PORT:-18080}
+MAIN=com.example.demo.TechhubApplication
+
+JAR=$(ls target/accenture-techhub-*.jar 2>/dev/null | head -1)
+if [ -z "$JAR" ]; then
+    echo "No jar in target/, run: mvn -Pfast-startup package" >&2
+    exit 1
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT/app"
+unzip -q "$JAR" -d "$OUT/app"
+# Application classes plus the component index, which the repackaged jar keeps at its root
+mkdir -p "$OUT/app/BOOT-INF/classes/META-INF"
+cp "$OUT/app/META-INF/spring.components" "$OUT/app/BOOT-INF/classes/META-INF/"
+jar cf "$OUT/application.jar" -C "$OUT/app/BOOT-INF/classes" .
+
+CP="$OUT/application.jar"
+for lib in "$OUT"/app/BOOT-INF/lib/*.jar; do
+    CP="$CP:$lib"
+done
+if [ -n "${EXTRA_CLASSPATH:-}" ]; then
+    CP="$CP:$EXTRA_CLASSPATH"
+fi
+echo "$CP" > "$OUT/classpath"
+
+java -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dspring.profiles.active=lazy -cp "$CP" $MAIN \
+    --server.port="$PORT" "$@" > "$OUT/training.log" 2>&1 &
+PID=$!
+
+for _ in $(seq 1 600); do
+    status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/api/rooms" || true)
+    case "$status" in 2*) break ;; esac
+    if ! kill -0 $PID 2>/dev/null; then
+        echo "Training run exited early, see $OUT/training.log" >&2
+        exit 1
+    fi
+    sleep 0.2
+done
+
+# Touch the other controllers so their classes end up in the archive too
+for path in /api/appointments /api/doctors /api/patients /api/doctors/1 /api/patients/1 /api/appointments/1 \
+        /api/rooms/none /actuator/health; do
+    curl -s -o /dev/null "http://localhost:$PORT$path" || true
+done
+
+kill -TERM $PID
+wait $PID || true
+
+if [ ! -f "$OUT/app.jsa" ]; then
+    echo "No archive written, see $OUT/training.log" >&2
+    exit 1
+fi
+echo "Wrote $OUT/app.jsa ($(du -h "$OUT/app.jsa" | cut -f1))"
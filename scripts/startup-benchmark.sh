@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful GET /api/rooms.
+#
+#   mvn -Pfast-startup package
+#   scripts/appcds.sh [application arguments...]
+#   RUNS=10 scripts/startup-benchmark.sh [application arguments...]
+#
+# Compares the plain executable jar, the jar with the lazy profile and the unpacked
+# application with the lazy profile and the AppCDS archive. Prints the median and the
+# best run in milliseconds for each.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+OUT="$(pwd)/target/fast-startup"
+PORT=${PORT:-18081}
+RUNS=${RUNS:-5}
+MAIN=com.example.demo.TechhubApplication
+
+JAR=$(ls target/accenture-techhub-*.jar 2>/dev/null | head -1)
+if [ -z "$JAR" ] || [ ! -f "$OUT/app.jsa" ]; then
+    echo "Run mvn -Pfast-startup package and scripts/appcds.sh first" >&2
+    exit 1
+fi
+CP=$(cat "$OUT/classpath")
+if [ -n "${EXTRA_CLASSPATH:-}" ]; then
+    # The launcher of an executable jar ignores -cp, add extra jars through the loader instead
+    JAR_CP="-Dloader.path=$EXTRA_CLASSPATH -cp $JAR org.springframework.boot.loader.PropertiesLauncher"
+else
+    JAR_CP="-jar $JAR"
+fi
+
+# Prints milliseconds from launch until GET /api/rooms answers 2xx
+time_to_first_request() {
+    local start end status pid
+    start=$(date +%s%N)
+    "$@" --server.port="$PORT" "${APP_ARGS[@]}" > "$OUT/benchmark.log" 2>&1 &
+    pid=$!
+    while true; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/api/rooms" || true)
+        case "$status" in 2*) break ;; esac
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "Application exited, see $OUT/benchmark.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    end=$(date +%s%N)
+    kill -TERM $pid
+    wait $pid || true
+    echo $(( (end - start) / 1000000 ))
+}
+
+measure() {
+    local name=$1
+    shift
+    local times=()
+    for _ in $(seq 1 "$RUNS"); do
+        times+=("$(time_to_first_request "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-28s median %6d ms   best %6d ms   (%s)\n' "$name" \
+        "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" "$(echo "$sorted" | head -1)" "$(echo ${times[*]})"
+}
+
+APP_ARGS=("$@")
+
+# shellcheck disable=SC2086
+measure "jar" java $JAR_CP
+# shellcheck disable=SC2086
+measure "jar, lazy" java -Dspring.profiles.active=lazy $JAR_CP
+measure "unpacked, lazy, AppCDS" java -XX:SharedArchiveFile="$OUT/app.jsa" -Dspring.profiles.active=lazy -cp "$CP" $MAIN
@@ -0,0 +1,82 @@
+package com.example.demo.benchmarks;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.JacksonConfiguration;
+import com.example.demo.entities.Appointment;
+import com.example.demo.json.DateTimeCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+/**
+ * Jackson round trips of {@link Appointment}. {@code mapper} picks the ObjectMapper:
+ * {@code formatter} formats dates with a DateTimeFormatter, as before {@link DateTimeCodec};
+ * {@code codec} uses the codec; {@code application} is what {@link JacksonConfiguration}
+ * builds, the codec plus Afterburner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentJsonBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int appointments;
+
+    @Param({"1", "50"})
+    public int rooms;
+
+    @Param({"formatter", "codec", "application"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private List<Appointment> list;
+    private byte[] single;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("application".equals(mapper)) {
+            new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        } else if ("codec".equals(mapper)) {
+            builder.serializers(new DateTimeCodec.Serializer());
+            builder.deserializers(new DateTimeCodec.Deserializer());
+        } else {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DateTimeCodec.PATTERN);
+            builder.serializers(new LocalDateTimeSerializer(formatter));
+            builder.deserializers(new LocalDateTimeDeserializer(formatter));
+        }
+        objectMapper = builder.build();
+
+        list = BenchmarkData.appointments(appointments, BenchmarkData.rooms(rooms));
+        single = objectMapper.writeValueAsBytes(list.get(0));
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public Appointment deserializeOne() throws Exception {
+        return objectMapper.readValue(single, Appointment.class);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+/**
+ * Deterministic synthetic schedules: back-to-back 30 minute appointments, spread
+ * round-robin over the rooms, starting at 08:00 on 02/01/2023.
+ */
+final class BenchmarkData {
+
+    static final LocalDateTime FIRST_SLOT = LocalDateTime.of(2023, 1, 2, 8, 0);
+    static final int SLOT_MINUTES = 30;
+
+    private BenchmarkData() {
+    }
+
+    static List<Room> rooms(int count) {
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Room room = new Room("Room-" + i);
+            room.setId(i + 1);
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    static List<Appointment> appointments(int count, List<Room> rooms) {
+        Random random = new Random(42);
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Room room = rooms.get(i % rooms.size());
+            LocalDateTime startsAt = FIRST_SLOT.plusMinutes((long) (i / rooms.size()) * SLOT_MINUTES);
+            Appointment appointment = new Appointment(patient(random), doctor(random), room,
+                    startsAt, startsAt.plusMinutes(SLOT_MINUTES));
+            appointment.setId(i + 1);
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    static Patient patient(Random random) {
+        Patient patient = new Patient("Patient", "Number" + random.nextInt(10_000), 18 + random.nextInt(70),
+                "patient" + random.nextInt(10_000) + "@email.com");
+        patient.setId(1 + random.nextInt(10_000));
+        return patient;
+    }
+
+    static Doctor doctor(Random random) {
+        Doctor doctor = new Doctor("Doctor", "Number" + random.nextInt(200), 30 + random.nextInt(35),
+                "doctor" + random.nextInt(200) + "@hospital.accwe");
+        doctor.setId(1 + random.nextInt(200));
+        return doctor;
+    }
+}
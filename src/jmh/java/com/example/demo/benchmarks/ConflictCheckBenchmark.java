@@ -0,0 +1,140 @@
+package com.example.demo.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.controllers.AppointmentController;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.schedule.BookingSchedule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The whole createAppointment path (validation, conflict check, save) against an
+ * in-memory repository holding {@code appointments} rows spread over {@code rooms}.
+ * Database time is excluded, so this isolates the CPU cost that grows with the schedule.
+ * The room schedule is loaded during setup, as it would be after the first booking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConflictCheckBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int appointments;
+
+    @Param({"1", "10", "50"})
+    public int rooms;
+
+    private AppointmentController controller;
+    private BookingSchedule bookingSchedule;
+    private Appointment conflicting;
+    private Appointment free;
+    private int freeRoomId;
+
+    @Setup
+    public void setUp() {
+        List<Room> roomList = BenchmarkData.rooms(rooms);
+        List<Appointment> schedule = BenchmarkData.appointments(appointments, roomList);
+
+        AppointmentRepository repository = repositoryOf(schedule);
+        bookingSchedule = new BookingSchedule();
+        ReflectionTestUtils.setField(bookingSchedule, "appointmentRepository", repository);
+
+        controller = new AppointmentController();
+        ReflectionTestUtils.setField(controller, "appointmentRepository", repository);
+        ReflectionTestUtils.setField(controller, "bookingSchedule", bookingSchedule);
+        ReflectionTestUtils.setField(controller, "roomDirectory", roomDirectoryOf(roomList));
+        ReflectionTestUtils.setField(controller, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(controller, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.invokeMethod(controller, "registerMeters");
+
+        // Collides with the very last booking of the last room, the worst case for the old full scan
+        Appointment last = schedule.get(schedule.size() - 1);
+        conflicting = new Appointment(last.getPatient(), last.getDoctor(), new Room(last.getRoom().getRoomName()),
+                last.getStartsAt(), last.getFinishesAt());
+
+        LocalDateTime afterEverything = last.getFinishesAt().plusDays(1);
+        free = new Appointment(last.getPatient(), last.getDoctor(), new Room(last.getRoom().getRoomName()),
+                afterEverything, afterEverything.plusMinutes(BenchmarkData.SLOT_MINUTES));
+        freeRoomId = last.getRoom().getId();
+        bookingSchedule.forRoom(freeRoomId);
+    }
+
+    @Benchmark
+    public ResponseEntity<Appointment> bookConflicting() {
+        return controller.createAppointment(conflicting);
+    }
+
+    @Benchmark
+    public ResponseEntity<Appointment> bookFreeSlot() {
+        ResponseEntity<Appointment> response = controller.createAppointment(free);
+        // Frees the slot again, so every invocation books it
+        bookingSchedule.remove(freeRoomId, response.getBody().getId(), free.getStartsMinute());
+        return response;
+    }
+
+    private static RoomDirectory roomDirectoryOf(List<Room> rooms) {
+        RoomRepository repository = (RoomRepository) Proxy.newProxyInstance(RoomRepository.class.getClassLoader(),
+                new Class<?>[] { RoomRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByRoomName":
+                            return rooms.stream().filter(room -> room.getRoomName().equals(args[0])).findFirst();
+                        case "toString":
+                            return "InMemoryRoomRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        RoomDirectory directory = new RoomDirectory();
+        ReflectionTestUtils.setField(directory, "roomRepository", repository);
+        return directory;
+    }
+
+    private static AppointmentRepository repositoryOf(List<Appointment> schedule) {
+        return (AppointmentRepository) Proxy.newProxyInstance(AppointmentRepository.class.getClassLoader(),
+                new Class<?>[] { AppointmentRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findScheduleRows":
+                            return schedule.stream()
+                                    .sorted(Comparator.comparingInt((Appointment a) -> a.getRoom().getId())
+                                            .thenComparingInt(Appointment::getStartsMinute))
+                                    .map(a -> new Object[] { a.getId(), a.getRoom().getId(), a.getStartsMinute(),
+                                            a.getFinishesMinute() })
+                                    .collect(Collectors.toList());
+                        case "save":
+                            return args[0];
+                        case "toString":
+                            return "InMemoryAppointmentRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
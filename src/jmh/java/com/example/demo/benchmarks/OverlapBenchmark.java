@@ -0,0 +1,73 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+
+/**
+ * Cost of a single {@link Appointment#overlaps} call for the outcomes the conflict scan
+ * sees: another room, same room but disjoint, and a real overlap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlapBenchmark {
+
+    private Appointment existing;
+    private Appointment otherRoom;
+    private Appointment disjoint;
+    private Appointment overlapping;
+
+    @Setup
+    public void setUp() {
+        Room dermatology = new Room("Dermatology");
+        // Distinct instance with an equal name, as after deserialization
+        Room sameRoom = new Room(new String("Dermatology"));
+        Room oncology = new Room("Oncology");
+
+        existing = new Appointment(null, null, dermatology,
+                BenchmarkData.FIRST_SLOT, BenchmarkData.FIRST_SLOT.plusHours(1));
+        otherRoom = new Appointment(null, null, oncology,
+                BenchmarkData.FIRST_SLOT, BenchmarkData.FIRST_SLOT.plusHours(1));
+        disjoint = new Appointment(null, null, sameRoom,
+                BenchmarkData.FIRST_SLOT.plusHours(2), BenchmarkData.FIRST_SLOT.plusHours(3));
+        overlapping = new Appointment(null, null, sameRoom,
+                BenchmarkData.FIRST_SLOT.plusMinutes(30), BenchmarkData.FIRST_SLOT.plusMinutes(90));
+    }
+
+    @Benchmark
+    public boolean otherRoom() {
+        return existing.overlaps(otherRoom);
+    }
+
+    @Benchmark
+    public boolean sameRoomDisjoint() {
+        return existing.overlaps(disjoint);
+    }
+
+    @Benchmark
+    public boolean sameRoomOverlapping() {
+        return existing.overlaps(overlapping);
+    }
+
+    @Benchmark
+    public boolean epochMinutesOverlapping() {
+        return Appointment.overlaps(existing.getStartsMinute(), existing.getFinishesMinute(),
+                overlapping.getStartsMinute(), overlapping.getFinishesMinute());
+    }
+}
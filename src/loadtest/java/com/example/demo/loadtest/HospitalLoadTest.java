@@ -0,0 +1,66 @@
+package com.example.demo.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.demo.TechhubApplication;
+
+/**
+ * Boots the application on an embedded Tomcat over H2, seeds a synthetic hospital and
+ * drives a request mix from many client threads. Run with
+ * {@code mvn -Ploadtest test} and tune with -Dloadtest.* (see {@link SyntheticHospital},
+ * {@link Operation} and the properties below). {@code -Dloadtest.db=file} keeps the data
+ * in target/loadtest so large datasets don't need to fit in the heap.
+ */
+@SpringBootTest(classes = TechhubApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class HospitalLoadTest {
+
+    private static final SyntheticHospital HOSPITAL = SyntheticHospital.fromSystemProperties();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws IOException {
+        if ("file".equals(System.getProperty("loadtest.db"))) {
+            // Start from an empty schema, the migrations run on startup
+            Files.deleteIfExists(Paths.get("target", "loadtest", "hospital.mv.db"));
+            registry.add("spring.datasource.url", () -> "jdbc:h2:file:./target/loadtest/hospital");
+        } else {
+            registry.add("spring.datasource.url", () -> "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        }
+    }
+
+    @Test
+    void driveMixedTraffic() throws Exception {
+        long seedStart = System.nanoTime();
+        HOSPITAL.seed(jdbc);
+        System.out.printf("Seeded %s in %.1f s%n", HOSPITAL, (System.nanoTime() - seedStart) / 1e9);
+
+        LoadDriver driver = new LoadDriver("http://localhost:" + port, HOSPITAL,
+                Integer.getInteger("loadtest.threads", 32));
+        LoadReport report = driver.run(Long.getLong("loadtest.warmup-seconds", 10L),
+                Long.getLong("loadtest.seconds", 60L));
+
+        report.print(System.out);
+        report.writeCsv(Paths.get("target", "loadtest", "report.csv"));
+
+        assertThat(report.totalRequests()).isPositive();
+        assertThat(report.ioErrors()).as("requests that got no HTTP response").isZero();
+        assertThat(report.serverErrors()).as("requests answered with a 5xx other than a shed 503").isZero();
+    }
+}
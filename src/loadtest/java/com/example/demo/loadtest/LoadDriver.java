@@ -0,0 +1,129 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load: each client thread sends its next request as soon as the previous one
+ * returns, picking operations by weight. Nothing is recorded during warm-up.
+ */
+class LoadDriver {
+
+    private static final int TIMEOUT_MILLIS = 60_000;
+
+    private final String baseUrl;
+    private final SyntheticHospital hospital;
+    private final int threads;
+    private final Operation[] byWeight;
+
+    private volatile boolean recording;
+    private volatile long deadline;
+
+    LoadDriver(String baseUrl, SyntheticHospital hospital, int threads) {
+        this.baseUrl = baseUrl;
+        this.hospital = hospital;
+        this.threads = threads;
+
+        List<Operation> slots = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            for (int i = 0; i < operation.weight(); i++) {
+                slots.add(operation);
+            }
+        }
+        this.byWeight = slots.toArray(new Operation[0]);
+    }
+
+    LoadReport run(long warmupSeconds, long measureSeconds) throws Exception {
+        Map<Operation, LoadReport.Endpoint> endpoints = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            endpoints.put(operation, new LoadReport.Endpoint(operation.endpoint));
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        try {
+            recording = false;
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            drive(clients, endpoints);
+
+            recording = true;
+            long start = System.nanoTime();
+            deadline = start + TimeUnit.SECONDS.toNanos(measureSeconds);
+            drive(clients, endpoints);
+            long elapsed = System.nanoTime() - start;
+
+            return new LoadReport(hospital.toString(), threads, elapsed, endpoints.values());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private void drive(ExecutorService clients, Map<Operation, LoadReport.Endpoint> endpoints) throws Exception {
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            running.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = byWeight[ThreadLocalRandom.current().nextInt(byWeight.length)];
+                    Operation.Request request = operation.next(hospital);
+
+                    long start = System.nanoTime();
+                    int status = send(request);
+                    long latency = System.nanoTime() - start;
+
+                    if (recording) {
+                        endpoints.get(operation).record(status, latency);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : running) {
+            client.get();
+        }
+    }
+
+    private int send(Operation.Request request) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            connection.setRequestMethod(request.method);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            if (request.accept != null) {
+                connection.setRequestProperty("Accept", request.accept);
+            }
+            if (request.body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = connection.getResponseCode();
+            // Drain the body so the connection is reused
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            return LoadReport.IO_ERROR;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/** Throughput, latency percentiles and status codes per endpoint. */
+class LoadReport {
+
+    static final int IO_ERROR = -1;
+
+    static final int SHED = 503;
+
+    private final String dataset;
+    private final int threads;
+    private final long elapsedNanos;
+    private final List<Endpoint> endpoints;
+
+    LoadReport(String dataset, int threads, long elapsedNanos, Collection<Endpoint> endpoints) {
+        this.dataset = dataset;
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.endpoints = new ArrayList<>(endpoints);
+    }
+
+    long totalRequests() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.latencies.getTotalCount();
+        }
+        return total;
+    }
+
+    long ioErrors() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.count(IO_ERROR);
+        }
+        return total;
+    }
+
+    /** 5xx responses other than the 503s admission control sheds load with. */
+    long serverErrors() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.countAtLeast(500) - endpoint.count(SHED);
+        }
+        return total;
+    }
+
+    void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%nDataset: %s%nClients: %d, measured %.1f s, %d requests, %.1f req/s%n%n", dataset, threads,
+                seconds, totalRequests(), totalRequests() / seconds);
+        out.printf("%-32s %9s %9s %9s %9s %9s %9s %9s  %s%n", "endpoint", "requests", "req/s", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms", "max ms", "statuses");
+        for (Endpoint endpoint : endpoints) {
+            Histogram h = endpoint.latencies;
+            out.printf("%-32s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n", endpoint.name, h.getTotalCount(),
+                    h.getTotalCount() / seconds, millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()),
+                    endpoint.statuses());
+        }
+    }
+
+    void writeCsv(Path file) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder csv = new StringBuilder("endpoint,requests,rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,statuses\n");
+        for (Endpoint endpoint : endpoints) {
+            Histogram h = endpoint.latencies;
+            csv.append(String.format("\"%s\",%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f,\"%s\"%n", endpoint.name,
+                    h.getTotalCount(), h.getTotalCount() / seconds, millis(h.getValueAtPercentile(50)),
+                    millis(h.getValueAtPercentile(90)), millis(h.getValueAtPercentile(99)),
+                    millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()), endpoint.statuses()));
+        }
+        Files.createDirectories(file.getParent());
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    static class Endpoint {
+
+        final String name;
+        final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(5), 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        void record(int status, long latencyNanos) {
+            latencies.recordValue(Math.min(latencyNanos, latencies.getHighestTrackableValue()));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long count(int status) {
+            LongAdder adder = statuses.get(status);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        long countAtLeast(int status) {
+            long total = 0;
+            for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+                if (entry.getKey() >= status) {
+                    total += entry.getValue().sum();
+                }
+            }
+            return total;
+        }
+
+        String statuses() {
+            Map<Integer, Long> sorted = new TreeMap<>();
+            statuses.forEach((status, count) -> sorted.put(status, count.sum()));
+            return sorted.toString();
+        }
+    }
+}
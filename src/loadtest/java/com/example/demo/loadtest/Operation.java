@@ -0,0 +1,112 @@
+package com.example.demo.loadtest;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The request mix. Default weights approximate a clinic day: mostly by-id reads, a steady
+ * trickle of bookings, occasional list screens and cancellations. Override a weight with
+ * -Dloadtest.weight.NAME=n; NDJSON exports are off unless given a weight.
+ */
+enum Operation {
+
+    BOOK("POST /api/appointment", 10),
+    GET_APPOINTMENT("GET /api/appointments/{id}", 35),
+    GET_DOCTOR("GET /api/doctors/{id}", 15),
+    GET_PATIENT("GET /api/patients/{id}", 10),
+    GET_ROOM("GET /api/rooms/{roomName}", 10),
+    LIST_ROOMS("GET /api/rooms", 5),
+    LIST_DOCTORS("GET /api/doctors", 5),
+    LIST_PATIENTS("GET /api/patients", 2),
+    LIST_APPOINTMENTS("GET /api/appointments", 1),
+    STREAM_APPOINTMENTS("GET /api/appointments (NDJSON)", 0),
+    CANCEL("DELETE /api/appointments/{id}", 3);
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+    /** Share of bookings aimed at an already taken slot. */
+    private static final int CONFLICTING_BOOKINGS_PERCENT = 20;
+
+    final String endpoint;
+    final int defaultWeight;
+
+    Operation(String endpoint, int defaultWeight) {
+        this.endpoint = endpoint;
+        this.defaultWeight = defaultWeight;
+    }
+
+    int weight() {
+        return Integer.getInteger("loadtest.weight." + name(), defaultWeight);
+    }
+
+    Request next(SyntheticHospital hospital) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (this) {
+            case BOOK:
+                return new Request("POST", "/api/appointment", booking(hospital, random));
+            case GET_APPOINTMENT:
+                return new Request("GET", "/api/appointments/" + randomAppointment(hospital, random), null);
+            case GET_DOCTOR:
+                return new Request("GET", "/api/doctors/" + hospital.doctorId(random.nextInt(hospital.doctors)), null);
+            case GET_PATIENT:
+                return new Request("GET", "/api/patients/" + hospital.patientId(random.nextInt(hospital.patients)), null);
+            case GET_ROOM:
+                return new Request("GET", "/api/rooms/" + hospital.roomName(random.nextInt(hospital.rooms)), null);
+            case LIST_ROOMS:
+                return new Request("GET", "/api/rooms", null);
+            case LIST_DOCTORS:
+                return new Request("GET", "/api/doctors", null);
+            case LIST_PATIENTS:
+                return new Request("GET", "/api/patients", null);
+            case LIST_APPOINTMENTS:
+                return new Request("GET", "/api/appointments", null);
+            case STREAM_APPOINTMENTS:
+                return new Request("GET", "/api/appointments", null, "application/x-ndjson");
+            case CANCEL:
+                return new Request("DELETE", "/api/appointments/" + randomAppointment(hospital, random), null);
+            default:
+                throw new IllegalStateException(name());
+        }
+    }
+
+    private static long randomAppointment(SyntheticHospital hospital, ThreadLocalRandom random) {
+        return hospital.firstAppointmentId() + random.nextInt(hospital.appointments);
+    }
+
+    private static String booking(SyntheticHospital hospital, ThreadLocalRandom random) {
+        long slot;
+        if (random.nextInt(100) < CONFLICTING_BOOKINGS_PERCENT) {
+            slot = random.nextLong(hospital.appointments / hospital.rooms + 1);
+        } else {
+            // Anywhere in the year after the seeded range
+            slot = hospital.slotsPerRoom() + random.nextLong(365L * hospital.slotsPerDay);
+        }
+        LocalDateTime startsAt = hospital.slotStart(slot);
+        LocalDateTime finishesAt = startsAt.plusMinutes(hospital.slotMinutes);
+
+        return "{\"patient\":{\"id\":" + hospital.patientId(random.nextInt(hospital.patients)) + "},"
+                + "\"doctor\":{\"id\":" + hospital.doctorId(random.nextInt(hospital.doctors)) + "},"
+                + "\"room\":{\"roomName\":\"" + hospital.roomName(random.nextInt(hospital.rooms)) + "\"},"
+                + "\"startsAt\":\"" + FORMAT.format(startsAt) + "\","
+                + "\"finishesAt\":\"" + FORMAT.format(finishesAt) + "\"}";
+    }
+
+    static final class Request {
+        final String method;
+        final String path;
+        final String body;
+        final String accept;
+
+        Request(String method, String path, String body) {
+            this(method, path, body, null);
+        }
+
+        Request(String method, String path, String body, String accept) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+            this.accept = accept;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.loadtest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entities.Appointment;
+
+/**
+ * Seeds a reproducible hospital straight through JDBC: rooms, doctors, patients and
+ * appointments spread evenly over the rooms and a number of months, eight to eight, with
+ * no overlaps inside a room. Everything is derived from the seed, so two runs with the
+ * same settings produce the same rows and the same ids.
+ */
+class SyntheticHospital {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+    static final int OPENING_MINUTE = 8 * 60;
+    static final int OPEN_MINUTES = 12 * 60;
+
+    private static final int BATCH_SIZE = 5_000;
+
+    final int rooms;
+    final int doctors;
+    final int patients;
+    final int appointments;
+    final int days;
+    final int slotMinutes;
+    final int slotsPerDay;
+    final long seed;
+
+    SyntheticHospital(int rooms, int doctors, int patients, int appointments, int months, long seed) {
+        this.rooms = rooms;
+        this.doctors = doctors;
+        this.patients = patients;
+        this.appointments = appointments;
+        this.days = months * 30;
+        this.seed = seed;
+
+        int perRoom = (appointments + rooms - 1) / rooms;
+        this.slotsPerDay = Math.max(1, (perRoom + days - 1) / days);
+        this.slotMinutes = OPEN_MINUTES / slotsPerDay;
+        if (slotMinutes < 5) {
+            throw new IllegalArgumentException(appointments + " appointments do not fit in " + rooms
+                    + " rooms over " + months + " months; add rooms or months");
+        }
+    }
+
+    static SyntheticHospital fromSystemProperties() {
+        return new SyntheticHospital(
+                Integer.getInteger("loadtest.rooms", 50),
+                Integer.getInteger("loadtest.doctors", 200),
+                Integer.getInteger("loadtest.patients", 20_000),
+                Integer.getInteger("loadtest.appointments", 100_000),
+                Integer.getInteger("loadtest.months", 6),
+                Long.getLong("loadtest.seed", 42L));
+    }
+
+    int roomId(int room) {
+        return 1 + room;
+    }
+
+    String roomName(int room) {
+        return String.format("Room-%03d", room);
+    }
+
+    long doctorId(int doctor) {
+        return 1 + doctor;
+    }
+
+    long patientId(int patient) {
+        return 1L + doctors + patient;
+    }
+
+    long firstAppointmentId() {
+        return 1L + doctors + patients;
+    }
+
+    long lastAppointmentId() {
+        return firstAppointmentId() + appointments - 1;
+    }
+
+    /** Start of slot number {@code slot} of a room, counting from the first day. */
+    LocalDateTime slotStart(long slot) {
+        long day = slot / slotsPerDay;
+        int minute = OPENING_MINUTE + (int) (slot % slotsPerDay) * slotMinutes;
+        return FIRST_DAY.plusDays(day).atStartOfDay().plusMinutes(minute);
+    }
+
+    long slotsPerRoom() {
+        return (long) days * slotsPerDay;
+    }
+
+    void seed(JdbcTemplate jdbc) {
+        batch(jdbc, "insert into room (id, room_name) values (?, ?)", rooms, (ps, i) -> {
+            ps.setInt(1, roomId(i));
+            ps.setString(2, roomName(i));
+        });
+
+        batch(jdbc, "insert into doctors (id, first_name, last_name, age, email) values (?, ?, ?, ?, ?)", doctors,
+                (ps, i) -> person(ps, doctorId(i), "Doctor", i, 30 + i % 35, "doctor" + i + "@hospital.accwe"));
+
+        batch(jdbc, "insert into patient (id, first_name, last_name, age, email) values (?, ?, ?, ?, ?)", patients,
+                (ps, i) -> person(ps, patientId(i), "Patient", i, 1 + i % 90, "patient" + i + "@email.com"));
+
+        Random random = new Random(seed);
+        batch(jdbc, "insert into appointment (id, patient_id, doctor_id, room_id, starts_at, finishes_at, "
+                + "starts_minute, finishes_minute) values (?, ?, ?, ?, ?, ?, ?, ?)", appointments, (ps, i) -> {
+                    LocalDateTime startsAt = slotStart(i / rooms);
+                    LocalDateTime finishesAt = startsAt.plusMinutes(slotMinutes);
+                    ps.setLong(1, firstAppointmentId() + i);
+                    ps.setLong(2, patientId(random.nextInt(patients)));
+                    ps.setLong(3, doctorId(random.nextInt(doctors)));
+                    ps.setInt(4, roomId(i % rooms));
+                    ps.setTimestamp(5, Timestamp.valueOf(startsAt));
+                    ps.setTimestamp(6, Timestamp.valueOf(finishesAt));
+                    ps.setInt(7, Appointment.toEpochMinute(startsAt));
+                    ps.setInt(8, Appointment.toEpochMinute(finishesAt));
+                });
+
+        // The running counts the application keeps from here on, computed the way V5 backfills them
+        jdbc.update("insert into appointment_stats (dimension, subject_id, period_start, appointments) "
+                + "select 'doctor-week', doctor_id, dateadd('DAY', 1 - iso_day_of_week(starts_at), cast(starts_at as date)), "
+                + "count(*) from appointment "
+                + "group by doctor_id, dateadd('DAY', 1 - iso_day_of_week(starts_at), cast(starts_at as date))");
+        jdbc.update("insert into appointment_stats (dimension, subject_id, period_start, appointments) "
+                + "select 'room-day', room_id, cast(starts_at as date), count(*) from appointment "
+                + "group by room_id, cast(starts_at as date)");
+        jdbc.update("insert into appointment_stats (dimension, subject_id, period_start, appointments) "
+                + "select 'patient-month', patient_id, dateadd('DAY', 1 - day_of_month(starts_at), cast(starts_at as date)), "
+                + "count(*) from appointment "
+                + "group by patient_id, dateadd('DAY', 1 - day_of_month(starts_at), cast(starts_at as date))");
+
+        // The booking log history, started the way V6 starts it
+        jdbc.update("insert into booking_log (type, appointment_id, room_id, doctor_id, patient_id, starts_minute, "
+                + "finishes_minute, recorded_at) select 'booked', id, room_id, doctor_id, patient_id, starts_minute, "
+                + "finishes_minute, current_timestamp from appointment order by id");
+
+        jdbc.execute("alter table room alter column id restart with " + (rooms + 1));
+        jdbc.execute("alter sequence hibernate_sequence restart with " + (lastAppointmentId() + 1));
+    }
+
+    private static void person(PreparedStatement ps, long id, String firstName, int n, int age, String email)
+            throws SQLException {
+        ps.setLong(1, id);
+        ps.setString(2, firstName);
+        ps.setString(3, "Number" + n);
+        ps.setInt(4, age);
+        ps.setString(5, email);
+    }
+
+    private static void batch(JdbcTemplate jdbc, String sql, int rows, RowWriter writer) {
+        for (int from = 0; from < rows; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, rows - from);
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    writer.write(ps, offset + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    @Override
+    public String toString() {
+        return rooms + " rooms, " + doctors + " doctors, " + patients + " patients, " + appointments
+                + " appointments over " + days + " days (" + slotMinutes + " min slots)";
+    }
+}
@@ -5,10 +5,10 @@ import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilde
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.demo.json.DateTimeCodec;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 @Configuration
 public class JacksonConfiguration {
@@ -20,16 +20,18 @@ public class JacksonConfiguration {
             
             // formatter
             DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            DateTimeFormatter dateTimeFormatter =  DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
             
             // deserializers
             builder.deserializers(new LocalDateDeserializer(dateFormatter));
-            builder.deserializers(new LocalDateTimeDeserializer(dateTimeFormatter));
+            // HH:mm dd/MM/yyyy without a DateTimeFormatter on the way
+            builder.deserializers(new DateTimeCodec.Deserializer());
             
             // serializers
             builder.serializers(new LocalDateSerializer(dateFormatter));
-            builder.serializers(new LocalDateTimeSerializer(dateTimeFormatter));
+            builder.serializers(new DateTimeCodec.Serializer());
+
+            // Generated getters, setters and constructors instead of reflection
+            builder.postConfigurer(objectMapper -> objectMapper.registerModule(new AfterburnerModule()));
         };
     }
 }
-
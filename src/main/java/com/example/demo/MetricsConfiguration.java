@@ -0,0 +1,33 @@
+package com.example.demo;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.filters.AdaptiveLimiter;
+import com.example.demo.filters.AdmissionControlFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterBinder admissionControlMetrics(AdmissionControlFilter admissionControlFilter) {
+        return registry -> {
+            for (AdaptiveLimiter limiter : new AdaptiveLimiter[] {
+                    admissionControlFilter.getHeavyLimiter(), admissionControlFilter.getLightLimiter() }) {
+
+                Gauge.builder("admission.limit", limiter, AdaptiveLimiter::getLimit)
+                        .description("Current adaptive concurrency limit")
+                        .tag("budget", limiter.getName())
+                        .register(registry);
+
+                Gauge.builder("admission.inflight", limiter, AdaptiveLimiter::getInflight)
+                        .description("Requests currently holding a permit")
+                        .tag("budget", limiter.getName())
+                        .register(registry);
+            }
+        };
+    }
+}
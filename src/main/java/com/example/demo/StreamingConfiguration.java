@@ -0,0 +1,58 @@
+package com.example.demo;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The threads NDJSON streams are written from. Admission control already caps heavy
+ * requests at app.admission.heavy.max-limit, so the pool is sized to that: every admitted
+ * stream gets a thread instead of queueing behind Boot's default 8. Past the pool and its
+ * short queue (only reachable with admission control off) a stream is refused with a 503.
+ */
+@Configuration
+public class StreamingConfiguration implements WebMvcConfigurer {
+
+    @Value("${app.streaming.threads:${app.admission.heavy.max-limit:40}}")
+    private int threads;
+
+    @Value("${app.streaming.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor streamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("ndjson-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor());
+    }
+
+    @RestControllerAdvice
+    static class RejectedStreams {
+
+        @ExceptionHandler(RejectedExecutionException.class)
+        ResponseEntity<Void> streamingPoolFull() {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+}
@@ -2,22 +2,52 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsCleared;
+import com.example.demo.feed.AppointmentChangeFeed;
+import com.example.demo.jfr.BookingEvent;
+import com.example.demo.jfr.BookingPhaseEvent;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.persistence.SingleFlight;
+import com.example.demo.schedule.BookingSchedule;
+import com.example.demo.schedule.RoomSchedule;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @RestController
 @RequestMapping("/api")
@@ -26,8 +56,56 @@ public class AppointmentController {
     @Autowired
     AppointmentRepository appointmentRepository;
 
+    @Autowired
+    RoomDirectory roomDirectory;
+
+    @Autowired
+    BookingSchedule bookingSchedule;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    AppointmentChangeFeed changeFeed;
+
+    @Autowired
+    BookingLogRepository bookingLogRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final SingleFlight<Long, Optional<Appointment>> lookups = new SingleFlight<>();
+
+    private Timer conflictCheckOk;
+    private Timer conflictCheckBadRequest;
+    private Timer conflictCheckConflict;
+
+    @PostConstruct
+    void registerMeters() {
+        conflictCheckOk = conflictCheckTimer("ok");
+        conflictCheckBadRequest = conflictCheckTimer("bad_request");
+        conflictCheckConflict = conflictCheckTimer("conflict");
+    }
+
+    private Timer conflictCheckTimer(String result) {
+        return Timer.builder("booking.conflict.check")
+                .description("Validation and conflict scan of createAppointment, by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
+    public ResponseEntity<?> getAllAppointments(@RequestParam(value = "view", required = false) String view,
+            @RequestParam(value = "fields", required = false) List<String> fields) {
+        if (view != null || fields != null) {
+            return refs(view, fields, () -> {
+                List<AppointmentRef> refs = appointmentRepository.findRefsOrderById();
+                return new ResponseEntity<>(refs, refs.isEmpty() ? HttpStatus.NO_CONTENT : HttpStatus.OK);
+            });
+        }
         List<Appointment> appointments = new ArrayList<>();
 
         appointmentRepository.findAll().forEach(appointments::add);
@@ -39,9 +117,55 @@ public class AppointmentController {
         return new ResponseEntity<>(appointments, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/appointments", params = "ids")
+    public ResponseEntity<?> getAppointmentsByIds(@RequestParam("ids") List<Long> ids,
+            @RequestParam(value = "view", required = false) String view,
+            @RequestParam(value = "fields", required = false) List<String> fields) {
+        if (view != null || fields != null) {
+            return refs(view, fields, () -> ByIds.find(ids, appointmentRepository::findRefsByIdInOrderById,
+                    AppointmentRef::getId));
+        }
+        return ByIds.find(ids, appointmentRepository::findAllById, Appointment::getId);
+    }
+
+    /**
+     * view=ref and fields=a,b: appointments with the patient and doctor as ids and the room by
+     * name, read without loading them, and only the listed {@link AppointmentRef#FIELDS} plus the id.
+     */
+    private static ResponseEntity<?> refs(String view, List<String> fields,
+            Supplier<ResponseEntity<List<AppointmentRef>>> load) {
+        if ((view != null && !"ref".equals(view)) || (fields != null && !AppointmentRef.FIELDS.containsAll(fields))) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        ResponseEntity<List<AppointmentRef>> response = load.get();
+        if (!response.hasBody()) {
+            return response;
+        }
+        Set<String> kept = new HashSet<>(fields != null ? fields : AppointmentRef.FIELDS);
+        kept.add("id");
+        MappingJacksonValue body = new MappingJacksonValue(response.getBody());
+        body.setFilters(new SimpleFilterProvider().addFilter(AppointmentRef.FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(kept)));
+        return new ResponseEntity<>(body, response.getStatusCode());
+    }
+
+    @GetMapping(value = "/appointments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAppointments() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new NdjsonStream<>(objectMapper, appointmentRepository::findByIdGreaterThanOrderByIdAsc, Appointment::getId, 0L));
+    }
+
+    @GetMapping(value = "/appointments/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAppointmentChanges(@RequestParam(value = "room", required = false) String roomName,
+            @RequestParam(value = "doctor", required = false) Long doctorId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeFeed.subscribe(roomName, doctorId, lastEventId);
+    }
+
     @GetMapping("/appointments/{id}")
     public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id) {
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
+        Optional<Appointment> appointment = lookups.load(id, () -> appointmentRepository.findById(id));
 
         if (appointment.isPresent()) {
             return new ResponseEntity<>(appointment.get(), HttpStatus.OK);
@@ -50,25 +174,76 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/appointments/{id}/history")
+    public ResponseEntity<List<BookingLogEntry>> getAppointmentHistory(@PathVariable("id") long id) {
+        List<BookingLogEntry> history = bookingLogRepository.findByAppointmentIdOrderById(id);
+
+        if (history.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(history, HttpStatus.OK);
+    }
+
     @PostMapping("/appointment")
     public ResponseEntity<Appointment> createAppointment(@RequestBody Appointment app) {
+        BookingEvent booking = BookingEvent.begin(app);
+        int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+        try {
+            ResponseEntity<Appointment> response = book(app);
+            status = response.getStatusCodeValue();
+            return response;
+        } finally {
+            booking.commit(status);
+        }
+    }
 
-        if (!app.getFinishesAt().isAfter(app.getStartsAt())) {
+    private ResponseEntity<Appointment> book(Appointment app) {
+        Timer.Sample conflictCheck = Timer.start(meterRegistry);
+
+        BookingPhaseEvent validation = BookingPhaseEvent.begin(BookingPhaseEvent.VALIDATION, app);
+        boolean valid = app.getFinishesAt().isAfter(app.getStartsAt());
+        validation.commit(0);
+        if (!valid) {
+            conflictCheck.stop(conflictCheckBadRequest);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        List<Appointment> appointments = appointmentRepository.findAll();
+        BookingPhaseEvent conflictScan = BookingPhaseEvent.begin(BookingPhaseEvent.CONFLICT_SCAN, app);
+        Room room = roomDirectory.findOrCreate(app.getRoom().getRoomName());
+        RoomSchedule schedule = bookingSchedule.forRoom(room.getId());
 
-        for (Appointment appointment : appointments) {
-            if (appointment.overlaps(app)) {
+        // Held until the row is saved so two requests cannot both take the same slot
+        synchronized (schedule) {
+            long conflict = schedule.findConflict(app.getStartsMinute(), app.getFinishesMinute());
+            conflictScan.commit(schedule.size());
+            if (conflict != RoomSchedule.NONE) {
+                conflictCheck.stop(conflictCheckConflict);
                 return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
             }
-        }
+            conflictCheck.stop(conflictCheckOk);
 
-        Appointment a = new Appointment(app.getPatient(), app.getDoctor(), app.getRoom(), app.getStartsAt(),
-                app.getFinishesAt());
-        appointmentRepository.save(a);
-        return new ResponseEntity<>(a, HttpStatus.OK);
+            BookingPhaseEvent save = BookingPhaseEvent.begin(BookingPhaseEvent.SAVE, app);
+            Appointment a = new Appointment(app.getPatient(), app.getDoctor(), room, app.getStartsAt(),
+                    app.getFinishesAt());
+            try {
+                appointmentRepository.saveBooking(a);
+            } catch (ObjectRetrievalFailureException e) {
+                // The patient or doctor was sent by an id that does not exist
+                save.commit(0);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            } catch (SlotTakenException e) {
+                // Booked through another instance; remember it so the next try is rejected here
+                schedule.add(e.getAppointmentId(), e.getStartsMinute(), e.getFinishesMinute());
+                save.commit(0);
+                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+            }
+            schedule.add(a.getId(), a.getStartsMinute(), a.getFinishesMinute());
+            save.commit(0);
+            // Still under the room's lock, so listeners see one room's bookings in order
+            eventPublisher.publishEvent(new AppointmentBooked(a));
+            return new ResponseEntity<>(a, HttpStatus.OK);
+        }
     }
 
     @DeleteMapping("/appointments/{id}")
@@ -81,6 +256,13 @@ public class AppointmentController {
         }
 
         appointmentRepository.deleteById(id);
+        // The archiver may have copied it just before; the copy goes too
+        appointmentRepository.deleteFromArchive(id);
+        Appointment deleted = appointment.get();
+        if (deleted.getRoom() != null) {
+            bookingSchedule.remove(deleted.getRoom().getId(), id, deleted.getStartsMinute());
+        }
+        eventPublisher.publishEvent(new AppointmentCancelled(deleted));
 
         return new ResponseEntity<>(HttpStatus.OK);
 
@@ -89,6 +271,8 @@ public class AppointmentController {
     @DeleteMapping("/appointments")
     public ResponseEntity<HttpStatus> deleteAllAppointments() {
         appointmentRepository.deleteAll();
+        bookingSchedule.clear();
+        eventPublisher.publishEvent(new AppointmentsCleared());
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
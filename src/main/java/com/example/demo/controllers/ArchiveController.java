@@ -0,0 +1,57 @@
+package com.example.demo.controllers;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.ArchivedAppointment;
+import com.example.demo.repositories.ArchivedAppointmentRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Appointments moved out of the appointment table by the archiver. {@code from} and {@code to}
+ * (dd/MM/yyyy, inclusive) select them by the day they started on.
+ */
+@RestController
+@RequestMapping("/api")
+public class ArchiveController {
+
+    @Autowired
+    ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @GetMapping("/appointments/archived")
+    public ResponseEntity<List<ArchivedAppointment>> getArchivedAppointments(
+            @RequestParam("from") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate from,
+            @RequestParam("to") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate to){
+        if (to.isBefore(from)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<ArchivedAppointment> appointments = archivedAppointmentRepository
+                .findByStartsMinuteGreaterThanEqualAndStartsMinuteLessThanOrderByStartsMinute(
+                        Appointment.toEpochMinute(from.atStartOfDay()),
+                        Appointment.toEpochMinute(to.plusDays(1).atStartOfDay()));
+        if (appointments.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(appointments, HttpStatus.OK);
+    }
+
+    @GetMapping("/appointments/archived/{id}")
+    public ResponseEntity<ArchivedAppointment> getArchivedAppointmentById(@PathVariable("id") long id){
+        Optional<ArchivedAppointment> appointment = archivedAppointmentRepository.findById(id);
+        if (appointment.isPresent()){
+            return new ResponseEntity<>(appointment.get(), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
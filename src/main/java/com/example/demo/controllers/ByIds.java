@@ -0,0 +1,50 @@
+package com.example.demo.controllers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Answers {@code GET /api/<collection>?ids=1,2,3} with a single {@code findAllById} query
+ * instead of one request per id. The entities come back in the order the ids were asked
+ * for, each once; unknown ids are left out.
+ */
+final class ByIds {
+
+    static final int MAX_IDS = 500;
+
+    private ByIds() {
+    }
+
+    static <T> ResponseEntity<List<T>> find(List<Long> ids, Function<Set<Long>, List<T>> finder,
+            ToLongFunction<T> idOf) {
+        Set<Long> wanted = new LinkedHashSet<>(ids);
+        wanted.remove(null);
+        if (wanted.isEmpty() || wanted.size() > MAX_IDS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<Long, T> found = new HashMap<>();
+        for (T entity : finder.apply(wanted)) {
+            found.put(idOf.applyAsLong(entity), entity);
+        }
+        List<T> inRequestOrder = new ArrayList<>(found.size());
+        for (Long id : wanted) {
+            T entity = found.get(id);
+            if (entity != null) {
+                inRequestOrder.add(entity);
+            }
+        }
+        if (inRequestOrder.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(inRequestOrder, HttpStatus.OK);
+    }
+}
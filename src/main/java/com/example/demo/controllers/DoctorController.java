@@ -1,22 +1,32 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.entities.Appointment;
 import com.example.demo.entities.Doctor;
+import com.example.demo.persistence.SingleFlight;
+import com.example.demo.schedule.DoctorAgenda;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @RestController
@@ -26,6 +36,15 @@ public class DoctorController {
     @Autowired
     DoctorRepository doctorRepository;
 
+    @Autowired
+    DoctorAgenda doctorAgenda;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Profile pages are opened by many clients at once
+    private final SingleFlight<Long, Optional<Doctor>> lookups = new SingleFlight<>();
+
     @GetMapping("/doctors")
     public ResponseEntity<List<Doctor>> getAllDoctors(){
         List<Doctor> doctors = new ArrayList<>();
@@ -39,9 +58,21 @@ public class DoctorController {
         return new ResponseEntity<>(doctors, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/doctors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllDoctors(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new NdjsonStream<>(objectMapper, doctorRepository::findByIdGreaterThanOrderByIdAsc, Doctor::getId, 0L));
+    }
+
+    @GetMapping(value = "/doctors", params = "ids")
+    public ResponseEntity<List<Doctor>> getDoctorsByIds(@RequestParam("ids") List<Long> ids){
+        return ByIds.find(ids, doctorRepository::findAllById, Doctor::getId);
+    }
+
     @GetMapping("/doctors/{id}")
     public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
+        Optional<Doctor> doctor = lookups.load(id, () -> doctorRepository.findById(id));
         if (! doctor.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -49,6 +80,19 @@ public class DoctorController {
         return new ResponseEntity<>(doctor.get(),HttpStatus.OK);
     }
 
+    @GetMapping("/doctors/{id}/agenda")
+    public ResponseEntity<List<Appointment>> getDoctorAgenda(@PathVariable("id") long id,
+            @RequestParam("date") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate date){
+        List<Appointment> agenda = doctorAgenda.forDay(id, date);
+
+        if (agenda.isEmpty()){
+            // Only a free day costs a lookup of the doctor
+            return new ResponseEntity<>(doctorRepository.existsById(id) ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(agenda, HttpStatus.OK);
+    }
+
     @PostMapping("/doctor")
     public ResponseEntity<Doctor> createDoctor(@RequestBody Doctor doc){
         Doctor d = new Doctor(doc.getFirstName(), doc.getLastName(), doc.getAge(), doc.getEmail());
@@ -0,0 +1,65 @@
+package com.example.demo.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Streams a whole table as newline-delimited JSON, one keyset page at a time.
+ *
+ * Each page is its own short read-only query, so no connection is pinned while the
+ * client reads. Writes block on the socket, so a slow client slows the cursor down
+ * instead of making the server buffer the table.
+ */
+public class NdjsonStream<T, K> implements StreamingResponseBody {
+
+    static final int PAGE_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+    private final BiFunction<K, Pageable, List<T>> pageLoader;
+    private final Function<T, K> keyOf;
+    private final K firstKey;
+
+    public NdjsonStream(ObjectMapper objectMapper, BiFunction<K, Pageable, List<T>> pageLoader,
+            Function<T, K> keyOf, K firstKey) {
+        this.objectMapper = objectMapper;
+        this.pageLoader = pageLoader;
+        this.keyOf = keyOf;
+        this.firstKey = firstKey;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        Pageable page = PageRequest.of(0, PAGE_SIZE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+
+            K after = firstKey;
+            List<T> rows;
+            do {
+                rows = pageLoader.apply(after, page);
+                for (T row : rows) {
+                    writer.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                if (!rows.isEmpty()) {
+                    after = keyOf.apply(rows.get(rows.size() - 1));
+                }
+            } while (rows.size() == PAGE_SIZE);
+        }
+    }
+}
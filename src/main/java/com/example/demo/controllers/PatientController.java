@@ -3,12 +3,14 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Patient;
+import com.example.demo.persistence.SingleFlight;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -17,7 +19,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @RestController
@@ -27,6 +33,11 @@ public class PatientController {
     @Autowired
     PatientRepository patientRepository;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final SingleFlight<Long, Optional<Patient>> lookups = new SingleFlight<>();
+
     @GetMapping("/patients")
     public ResponseEntity<List<Patient>> getAllPatients(){
         List<Patient> patients = new ArrayList<>();
@@ -40,9 +51,21 @@ public class PatientController {
         return new ResponseEntity<>(patients, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/patients", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPatients(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new NdjsonStream<>(objectMapper, patientRepository::findByIdGreaterThanOrderByIdAsc, Patient::getId, 0L));
+    }
+
+    @GetMapping(value = "/patients", params = "ids")
+    public ResponseEntity<List<Patient>> getPatientsByIds(@RequestParam("ids") List<Long> ids){
+        return ByIds.find(ids, patientRepository::findAllById, Patient::getId);
+    }
+
     @GetMapping("/patients/{id}")
     public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
+        Optional<Patient> patient = lookups.load(id, () -> patientRepository.findById(id));
         if (! patient.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
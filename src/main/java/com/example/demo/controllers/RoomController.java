@@ -3,21 +3,32 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Room;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.schedule.RoomUtilization;
+import com.example.demo.schedule.UtilizationReport;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @RestController
@@ -27,6 +38,18 @@ public class RoomController {
     @Autowired
     RoomRepository roomRepository;
 
+    @Autowired
+    RoomDirectory roomDirectory;
+
+    @Autowired
+    UtilizationReport utilizationReport;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // An hourly report over two years
+    static final int MAX_UTILIZATION_BUCKETS = 2 * 366 * 24;
+
     @GetMapping("/rooms")
     public ResponseEntity<List<Room>> getAllRooms(){
         List<Room> rooms = new ArrayList<>();
@@ -40,9 +63,43 @@ public class RoomController {
         return new ResponseEntity<>(rooms, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/rooms", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRooms(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new NdjsonStream<>(objectMapper, roomRepository::findByRoomNameGreaterThanOrderByRoomNameAsc, Room::getRoomName, ""));
+    }
+
+    @GetMapping("/rooms/utilization")
+    public ResponseEntity<List<RoomUtilization>> getRoomUtilization(
+            @RequestParam("from") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate from,
+            @RequestParam("to") @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate to,
+            @RequestParam(value = "granularity", defaultValue = "day") String granularity){
+        // Both days are included; bucket i of every room starts at from + i hours or days
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        int bucketMinutes;
+        if ("hour".equals(granularity)){
+            bucketMinutes = 60;
+        } else if ("day".equals(granularity)){
+            bucketMinutes = 24 * 60;
+        } else {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        long buckets = days * 24 * 60 / bucketMinutes;
+        if (days < 1 || buckets > MAX_UTILIZATION_BUCKETS){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<RoomUtilization> utilization = utilizationReport.compute(from.atStartOfDay(), bucketMinutes, (int) buckets);
+        if (utilization.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(utilization, HttpStatus.OK);
+    }
+
     @GetMapping("/rooms/{roomName}")
     public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
+        Optional<Room> room = roomDirectory.find(roomName);
         if (!room.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -51,8 +108,7 @@ public class RoomController {
 
     @PostMapping("/room")
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
-        Room tmp = new Room(room.getRoomName());
-        roomRepository.save(tmp);
+        Room tmp = roomDirectory.findOrCreate(room.getRoomName());
         return new ResponseEntity<>(tmp, HttpStatus.CREATED);
     }
 
@@ -63,12 +119,14 @@ public class RoomController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         roomRepository.deleteByRoomName(roomName);
+        roomDirectory.evict(roomName);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/rooms")
     public ResponseEntity<HttpStatus> deleteAllRooms(){
         roomRepository.deleteAll();
+        roomDirectory.clear();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -0,0 +1,105 @@
+package com.example.demo.controllers;
+
+import com.example.demo.entities.AppointmentStat;
+import com.example.demo.entities.Room;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.stats.AppointmentStats;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Precomputed appointment counts. {@code from} and {@code to} (dd/MM/yyyy, both optional and
+ * inclusive) select the periods by the day they start on.
+ */
+@RestController
+@RequestMapping("/api")
+public class StatsController {
+
+    @Autowired
+    AppointmentStats appointmentStats;
+
+    @Autowired
+    RoomDirectory roomDirectory;
+
+    @GetMapping("/stats/doctors/{id}/weekly")
+    public ResponseEntity<List<PeriodCount>> getDoctorWeeklyStats(@PathVariable("id") long id,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate to){
+        return periods(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, id), from, to);
+    }
+
+    @GetMapping("/stats/rooms/{roomName}/daily")
+    public ResponseEntity<List<PeriodCount>> getRoomDailyStats(@PathVariable("roomName") String roomName,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate to){
+        Optional<Room> room = roomDirectory.find(roomName);
+        if (!room.isPresent()){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return periods(appointmentStats.counts(AppointmentStat.ROOM_DAY, room.get().getId()), from, to);
+    }
+
+    @GetMapping("/stats/patients/{id}/monthly")
+    public ResponseEntity<List<PeriodCount>> getPatientMonthlyStats(@PathVariable("id") long id,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate to){
+        return periods(appointmentStats.counts(AppointmentStat.PATIENT_MONTH, id), from, to);
+    }
+
+    private static ResponseEntity<List<PeriodCount>> periods(NavigableMap<LocalDate, Integer> counts, LocalDate from,
+            LocalDate to){
+        if (from != null){
+            counts = counts.tailMap(from, true);
+        }
+        if (to != null){
+            counts = counts.headMap(to, true);
+        }
+        List<PeriodCount> periods = new ArrayList<>();
+        for (Map.Entry<LocalDate, Integer> count : counts.entrySet()){
+            if (count.getValue() > 0){
+                periods.add(new PeriodCount(count.getKey(), count.getValue()));
+            }
+        }
+        if (periods.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(periods, HttpStatus.OK);
+    }
+
+    public static class PeriodCount {
+
+        private final LocalDate period;
+        private final int appointments;
+
+        PeriodCount(LocalDate period, int appointments){
+            this.period = period;
+            this.appointments = appointments;
+        }
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+        public LocalDate getPeriod(){
+            return period;
+        }
+
+        public int getAppointments(){
+            return appointments;
+        }
+    }
+}
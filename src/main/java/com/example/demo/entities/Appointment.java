@@ -1,12 +1,14 @@
 package com.example.demo.entities;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 public class Appointment {
@@ -16,16 +18,17 @@ public class Appointment {
     private long id;
 
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Persist only: cancelling an appointment must not delete the patient or doctor
+    @ManyToOne(cascade = CascadeType.PERSIST)
     @JoinColumn(name = "patient_id", referencedColumnName = "id")
     private Patient patient;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(cascade = CascadeType.PERSIST)
     @JoinColumn(name = "doctor_id", referencedColumnName = "id")
     private Doctor doctor;
 
-    @ManyToOne(cascade = CascadeType.ALL)
-    @JoinColumn(name = "room_id", referencedColumnName = "roomName")
+    @ManyToOne
+    @JoinColumn(name = "room_id", referencedColumnName = "id")
     private Room room;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
@@ -34,6 +37,13 @@ public class Appointment {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
     private LocalDateTime finishesAt;
 
+    // startsAt and finishesAt as minutes since 1970-01-01T00:00, kept in step by the setters
+    @JsonIgnore
+    private int startsMinute;
+
+    @JsonIgnore
+    private int finishesMinute;
+
     public Appointment(){
         super();
     }
@@ -42,8 +52,8 @@ public class Appointment {
         this.patient = patient;
         this.doctor = doctor;
         this.room = room;
-        this.startsAt =  startsAt;
-        this.finishesAt =  finishesAt;
+        setStartsAt(startsAt);
+        setFinishesAt(finishesAt);
     }
 
     public long getId(){
@@ -59,6 +69,7 @@ public class Appointment {
     }
     public void setStartsAt(LocalDateTime startsAt){
         this.startsAt = startsAt;
+        this.startsMinute = toEpochMinute(startsAt);
     }
     
     public LocalDateTime getFinishesAt(){
@@ -66,6 +77,15 @@ public class Appointment {
     }
     public void setFinishesAt(LocalDateTime finishesAt){
         this.finishesAt = finishesAt;
+        this.finishesMinute = toEpochMinute(finishesAt);
+    }
+
+    public int getStartsMinute(){
+        return this.startsMinute;
+    }
+
+    public int getFinishesMinute(){
+        return this.finishesMinute;
     }
 
     public Patient getPatient(){
@@ -90,25 +110,24 @@ public class Appointment {
     }
     
     public boolean overlaps( Appointment appointment){
+        return appointment.getRoom().isSameRoom(this.getRoom())
+                && overlaps(this.startsMinute, this.finishesMinute, appointment.startsMinute, appointment.finishesMinute);
+    }
+
+    /** Whether B clashes with an existing appointment A in the same room, in epoch minutes. */
+    public static boolean overlaps(int aStarts, int aFinishes, int bStarts, int bFinishes){
         /// True when:
         // Case 1: A.starts == B.starts
-        // Case 2: A.finishes == B.finishes 
+        // Case 2: A.finishes == B.finishes
         // Case 3: A.starts < B.finishes && B.finishes < A.finishes
-        // Case 4: B.starts < A.starts && A.finishes < B.finishes
-        if (appointment.getRoom().getRoomName().equals(this.getRoom().getRoomName())){ 
-            if (this.getStartsAt().equals(appointment.getStartsAt()) || 
-                    appointment.getFinishesAt().equals(this.getFinishesAt())){
-                return true;
-                    }
-            if (appointment.getFinishesAt().isAfter(this.getStartsAt()) && appointment.getFinishesAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
-            if ( appointment.getStartsAt().isAfter(this.getStartsAt()) && appointment.getStartsAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
-        }
-        
-        return false;
+        // Case 4: A.starts < B.starts && B.starts < A.finishes
+        return aStarts == bStarts || aFinishes == bFinishes
+                || (aStarts < bFinishes && bFinishes < aFinishes)
+                || (aStarts < bStarts && bStarts < aFinishes);
+    }
+
+    public static int toEpochMinute(LocalDateTime time){
+        return time == null ? 0 : Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60L));
     }
 
 }
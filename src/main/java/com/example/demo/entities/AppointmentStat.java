@@ -0,0 +1,91 @@
+package com.example.demo.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/** Number of appointments of one doctor, room or patient in one week, day or month. */
+@Entity
+@Table(name = "appointment_stats")
+@IdClass(AppointmentStat.Key.class)
+public class AppointmentStat {
+
+    public static final String DOCTOR_WEEK = "doctor-week";
+    public static final String ROOM_DAY = "room-day";
+    public static final String PATIENT_MONTH = "patient-month";
+
+    @Id
+    private String dimension;
+
+    @Id
+    private long subjectId;
+
+    @Id
+    private LocalDate periodStart;
+
+    private int appointments;
+
+    public AppointmentStat(){
+        super();
+    }
+
+    public AppointmentStat(String dimension, long subjectId, LocalDate periodStart, int appointments){
+        this.dimension = dimension;
+        this.subjectId = subjectId;
+        this.periodStart = periodStart;
+        this.appointments = appointments;
+    }
+
+    public String getDimension(){
+        return this.dimension;
+    }
+
+    public long getSubjectId(){
+        return this.subjectId;
+    }
+
+    public LocalDate getPeriodStart(){
+        return this.periodStart;
+    }
+
+    public int getAppointments(){
+        return this.appointments;
+    }
+
+    public static class Key implements Serializable {
+
+        private String dimension;
+        private long subjectId;
+        private LocalDate periodStart;
+
+        public Key(){
+            super();
+        }
+
+        public Key(String dimension, long subjectId, LocalDate periodStart){
+            this.dimension = dimension;
+            this.subjectId = subjectId;
+            this.periodStart = periodStart;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if (!(o instanceof Key)){
+                return false;
+            }
+            Key other = (Key) o;
+            return subjectId == other.subjectId && Objects.equals(dimension, other.dimension)
+                    && Objects.equals(periodStart, other.periodStart);
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(dimension, subjectId, periodStart);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * An appointment that finished before the archive horizon, with the id it was booked under.
+ * Rows are written by {@link com.example.demo.persistence.AppointmentArchiver} and only read
+ * afterwards.
+ */
+@Entity
+@Table(name = "appointment_archive")
+public class ArchivedAppointment {
+
+    @Id
+    private long id;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id", referencedColumnName = "id")
+    private Patient patient;
+
+    @ManyToOne
+    @JoinColumn(name = "doctor_id", referencedColumnName = "id")
+    private Doctor doctor;
+
+    @ManyToOne
+    @JoinColumn(name = "room_id", referencedColumnName = "id")
+    private Room room;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime finishesAt;
+
+    @JsonIgnore
+    private int startsMinute;
+
+    @JsonIgnore
+    private int finishesMinute;
+
+    @Column(nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm:ss dd/MM/yyyy")
+    private LocalDateTime archivedAt;
+
+    public ArchivedAppointment(){
+        super();
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public Patient getPatient(){
+        return this.patient;
+    }
+
+    public Doctor getDoctor(){
+        return this.doctor;
+    }
+
+    public Room getRoom(){
+        return this.room;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+
+    public int getStartsMinute(){
+        return this.startsMinute;
+    }
+
+    public int getFinishesMinute(){
+        return this.finishesMinute;
+    }
+
+    public LocalDateTime getArchivedAt(){
+        return this.archivedAt;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.entities;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One booking, cancellation, clear or archiving, as it happened. Entries are only ever inserted; the
+ * id orders them.
+ */
+@Entity
+@Table(name = "booking_log")
+public class BookingLogEntry {
+
+    public static final String BOOKED = "booked";
+    public static final String CANCELLED = "cancelled";
+    public static final String CLEARED = "cleared";
+    public static final String ARCHIVED = "archived";
+
+    @Id
+    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false, updatable = false)
+    private String type;
+
+    private Long appointmentId;
+
+    @JsonIgnore
+    private Integer roomId;
+
+    private Long doctorId;
+
+    private Long patientId;
+
+    @JsonIgnore
+    private int startsMinute;
+
+    @JsonIgnore
+    private int finishesMinute;
+
+    @Column(nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm:ss dd/MM/yyyy")
+    private LocalDateTime recordedAt;
+
+    public BookingLogEntry(){
+        super();
+    }
+
+    public BookingLogEntry(String type, Appointment appointment){
+        this.type = type;
+        this.recordedAt = LocalDateTime.now();
+        if (appointment != null) {
+            this.appointmentId = appointment.getId();
+            this.roomId = appointment.getRoom() != null ? appointment.getRoom().getId() : null;
+            this.doctorId = appointment.getDoctor() != null ? appointment.getDoctor().getId() : null;
+            this.patientId = appointment.getPatient() != null ? appointment.getPatient().getId() : null;
+            this.startsMinute = appointment.getStartsMinute();
+            this.finishesMinute = appointment.getFinishesMinute();
+        }
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getType(){
+        return this.type;
+    }
+
+    public Long getAppointmentId(){
+        return this.appointmentId;
+    }
+
+    public Integer getRoomId(){
+        return this.roomId;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public int getStartsMinute(){
+        return this.startsMinute;
+    }
+
+    public int getFinishesMinute(){
+        return this.finishesMinute;
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    public LocalDateTime getStartsAt(){
+        return appointmentId == null ? null : fromEpochMinute(startsMinute);
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    public LocalDateTime getFinishesAt(){
+        return appointmentId == null ? null : fromEpochMinute(finishesMinute);
+    }
+
+    public LocalDateTime getRecordedAt(){
+        return this.recordedAt;
+    }
+
+    private static LocalDateTime fromEpochMinute(int minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+}
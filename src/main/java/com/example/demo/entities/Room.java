@@ -1,12 +1,23 @@
 package com.example.demo.entities;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
 public class Room {
 
+    // Rooms are few and referenced by every appointment: a 4-byte key keeps that column and its indexes small
     @Id
+    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    @JsonIgnore
+    private int id;
+
+    @Column(unique = true, nullable = false, updatable = false)
     private String roomName;
 
     public Room(){
@@ -18,9 +29,23 @@ public class Room {
         this.roomName = roomName;
     }
 
+    public int getId(){
+        return this.id;
+    }
+
+    public void setId(int id){
+        this.id = id;
+    }
 
     public String getRoomName(){
         return this.roomName;
     }
 
+    public boolean isSameRoom(Room room){
+        if (this.id != 0 && room.getId() != 0){
+            return this.id == room.getId();
+        }
+        return this.roomName.equals(room.getRoomName());
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.example.demo.events;
+
+import com.example.demo.entities.Appointment;
+
+/** Published by the booking endpoint once the appointment is saved. */
+public class AppointmentBooked {
+
+    private final Appointment appointment;
+
+    public AppointmentBooked(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+}
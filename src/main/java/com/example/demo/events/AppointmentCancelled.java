@@ -0,0 +1,17 @@
+package com.example.demo.events;
+
+import com.example.demo.entities.Appointment;
+
+/** Published by the delete endpoint once the appointment is gone. */
+public class AppointmentCancelled {
+
+    private final Appointment appointment;
+
+    public AppointmentCancelled(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+}
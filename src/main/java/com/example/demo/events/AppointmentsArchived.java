@@ -0,0 +1,19 @@
+package com.example.demo.events;
+
+import java.util.List;
+
+import com.example.demo.entities.Appointment;
+
+/** Published by the archiver for each chunk, once its appointments are gone from appointment. */
+public class AppointmentsArchived {
+
+    private final List<Appointment> appointments;
+
+    public AppointmentsArchived(List<Appointment> appointments) {
+        this.appointments = appointments;
+    }
+
+    public List<Appointment> getAppointments() {
+        return appointments;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.events;
+
+/** Published when every appointment has been deleted at once. */
+public class AppointmentsCleared {
+}
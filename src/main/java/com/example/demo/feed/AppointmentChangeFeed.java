@@ -0,0 +1,292 @@
+package com.example.demo.feed;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.events.AppointmentsCleared;
+
+/**
+ * Pushes bookings and cancellations to Server-Sent Events subscribers, so dashboards can
+ * follow the appointment list instead of polling it. Each archived chunk is one
+ * {@code archived} event with the ids of the appointments that left the list.
+ *
+ * The last changes are kept in a ring buffer; a client that reconnects with Last-Event-ID
+ * gets what it missed from there. When its id has already left the buffer, or comes from
+ * before a restart, it gets a {@code reset} event and should reload the list.
+ *
+ * Every client has its own bounded queue, written out by its own thread, so a slow client
+ * delays neither bookings nor the other clients. A client that falls more than
+ * app.changes.queue-size changes behind is disconnected and resumes from its Last-Event-ID.
+ * A comment every app.changes.heartbeat-ms keeps idle connections open through proxies.
+ */
+@Component
+public class AppointmentChangeFeed {
+
+    public static final String CREATED = "created";
+    public static final String DELETED = "deleted";
+    public static final String CLEARED = "cleared";
+    public static final String ARCHIVED = "archived";
+    public static final String RESET = "reset";
+    public static final String HEARTBEAT = "heartbeat";
+
+    private static final Change KEEP_ALIVE = new Change(0, HEARTBEAT, null, null);
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentChangeFeed.class);
+
+    private final Change[] ring;
+    private final int queueSize;
+    // Ids of a new run start above those of any earlier run, so stale ids read as too old
+    private final long firstId = System.currentTimeMillis() * 1000;
+    private long nextId = firstId;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // A thread per subscriber with changes queued, kept while it is being written to
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public AppointmentChangeFeed(@Value("${app.changes.buffer-size:1024}") int bufferSize,
+            @Value("${app.changes.queue-size:256}") int queueSize) {
+        this.ring = new Change[bufferSize];
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Subscribes to changes of one room and/or doctor (null for all), starting after
+     * {@code lastEventId} when given. Cleared and reset events go to every subscriber.
+     */
+    public SseEmitter subscribe(String roomName, Long doctorId, Long lastEventId) {
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, roomName, doctorId);
+
+        synchronized (this) {
+            if (lastEventId != null) {
+                long oldest = Math.max(firstId, nextId - ring.length);
+                if (lastEventId < oldest - 1 || lastEventId >= nextId || nextId - 1 - lastEventId > queueSize) {
+                    subscriber.offer(new Change(nextId - 1, RESET, null, null));
+                } else {
+                    for (long id = lastEventId + 1; id < nextId; id++) {
+                        subscriber.offer(ring[slot(id)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(initialDelayString = "${app.changes.heartbeat-ms:15000}",
+            fixedDelayString = "${app.changes.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(KEEP_ALIVE);
+        }
+    }
+
+    @EventListener
+    public void onBooked(AppointmentBooked event) {
+        publish(CREATED, event.getAppointment());
+    }
+
+    @EventListener
+    public void onCancelled(AppointmentCancelled event) {
+        publish(DELETED, event.getAppointment());
+    }
+
+    @EventListener
+    public void onArchived(AppointmentsArchived event) {
+        publish(ARCHIVED, null, event.getAppointments());
+    }
+
+    @EventListener
+    public void onCleared(AppointmentsCleared event) {
+        publish(CLEARED, null);
+    }
+
+    private void publish(String type, Appointment appointment) {
+        publish(type, appointment, null);
+    }
+
+    private synchronized void publish(String type, Appointment appointment, List<Appointment> archived) {
+        Change change = new Change(nextId++, type, appointment, archived);
+        ring[slot(change.id)] = change;
+        // Queued under the lock, so changes reach every subscriber in id order
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change);
+        }
+    }
+
+    // Overridden in tests to stand in for the client
+    protected SseEmitter newEmitter() {
+        // Times out with the other async requests; EventSource reconnects with Last-Event-ID
+        return new SseEmitter();
+    }
+
+    private int slot(long id) {
+        return (int) (id % ring.length);
+    }
+
+    @PreDestroy
+    void close() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static final class Change {
+
+        private final long id;
+        private final String type;
+        private final Appointment appointment;
+        private final List<Appointment> archived;
+
+        Change(long id, String type, Appointment appointment, List<Appointment> archived) {
+            this.id = id;
+            this.type = type;
+            this.appointment = appointment;
+            this.archived = archived;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String roomName;
+        private final Long doctorId;
+        private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(queueSize);
+        // Set while a sender thread owns the queue, so changes are written one at a time
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, String roomName, Long doctorId) {
+            this.emitter = emitter;
+            this.roomName = roomName;
+            this.doctorId = doctorId;
+        }
+
+        void offer(Change change) {
+            if (closed || (change != KEEP_ALIVE && !matches(change))) {
+                return;
+            }
+            if (!queue.offer(change)) {
+                log.debug("Dropping change feed subscriber {} changes behind", queueSize);
+                closed = true;
+                subscribers.remove(this);
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Change change;
+                while (!closed && (change = queue.poll()) != null) {
+                    send(change);
+                }
+                if (closed) {
+                    queue.clear();
+                    // Ends the response; the client reconnects and resumes from its Last-Event-ID
+                    emitter.complete();
+                    return;
+                }
+                sending.set(false);
+            } while (!queue.isEmpty() && sending.compareAndSet(false, true));
+        }
+
+        private void send(Change change) {
+            if (change == KEEP_ALIVE) {
+                write(SseEmitter.event().comment(HEARTBEAT));
+                return;
+            }
+            Object data = change.appointment != null ? change.appointment : Collections.emptyMap();
+            if (change.archived != null) {
+                data = Collections.singletonMap("ids", archivedIds(change.archived));
+            }
+            write(SseEmitter.event().id(String.valueOf(change.id)).name(change.type)
+                    .data(data, MediaType.APPLICATION_JSON));
+        }
+
+        private boolean matches(Change change) {
+            if (change.archived == null) {
+                return matches(change.appointment);
+            }
+            for (Appointment appointment : change.archived) {
+                if (matches(appointment)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<Long> archivedIds(List<Appointment> archived) {
+            List<Long> ids = new ArrayList<>();
+            for (Appointment appointment : archived) {
+                if (matches(appointment)) {
+                    ids.add(appointment.getId());
+                }
+            }
+            return ids;
+        }
+
+        private boolean matches(Appointment appointment) {
+            if (appointment == null) {
+                return true;
+            }
+            if (roomName != null && (appointment.getRoom() == null
+                    || !roomName.equals(appointment.getRoom().getRoomName()))) {
+                return false;
+            }
+            return doctorId == null || (appointment.getDoctor() != null
+                    && doctorId == appointment.getDoctor().getId());
+        }
+
+        private void write(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // Gone or already completed; the container reports the error to the emitter
+                log.debug("Dropping change feed subscriber: {}", e.toString());
+                closed = true;
+                subscribers.remove(this);
+            }
+        }
+    }
+}
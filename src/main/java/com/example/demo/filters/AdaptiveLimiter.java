@@ -0,0 +1,108 @@
+package com.example.demo.filters;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient-style concurrency limit.
+ *
+ * Latency samples are averaged over windows of roughly one limit's worth of requests and
+ * compared with a long-term average of those windows. While recent requests are as fast
+ * as usual the limit grows by a small queue allowance; once they slow down (the database
+ * or the pool is saturating) the limit shrinks in proportion.
+ */
+public class AdaptiveLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final double LONG_WINDOW_WEIGHT = 2.0 / (600 + 1);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRtt;
+    private long windowSum;
+    private int windowCount;
+    private int windowMaxInflight;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Releases a permit and feeds the request latency into the limit. */
+    public void release(long latencyNanos) {
+        int inflightBefore = inflight.getAndDecrement();
+        onSample(latencyNanos, inflightBefore);
+    }
+
+    /** Releases a permit without a latency sample, e.g. for long-running streams. */
+    public void releaseWithoutSample() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void onSample(long latencyNanos, int inflightAtSample) {
+        windowSum += latencyNanos;
+        windowCount++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightAtSample);
+        if (windowCount < Math.max(MIN_WINDOW_SAMPLES, (int) limit)) {
+            return;
+        }
+
+        double shortRtt = (double) windowSum / windowCount;
+        int maxInflight = windowMaxInflight;
+        windowSum = 0;
+        windowCount = 0;
+        windowMaxInflight = 0;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+            return;
+        }
+        longRtt += (shortRtt - longRtt) * LONG_WINDOW_WEIGHT;
+
+        // Recover quickly once a latency spike is over instead of staying pessimistic
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Only grow when the limit is actually being used
+        if (maxInflight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.filters;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load on /api/** before it reaches the connection pool.
+ *
+ * Bookings and whole-table reads share one budget and by-id lookups another, so a heavy
+ * export can no longer starve cheap requests. Requests over the limit get a 503 with
+ * Retry-After immediately instead of queueing until Hikari times out. The change feed is
+ * left out: its subscribers stay connected for minutes without using the pool.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList(
+            "/api/appointments", "/api/appointments/archived", "/api/doctors", "/api/patients", "/api/rooms",
+            "/api/rooms/utilization"));
+
+    private static final Set<String> SUBSCRIPTIONS = new HashSet<>(Arrays.asList(
+            "/api/appointments/changes"));
+
+    private final boolean enabled;
+    private final AdaptiveLimiter heavy;
+    private final AdaptiveLimiter light;
+
+    @Autowired
+    public AdmissionControlFilter(
+            @Value("${app.admission.enabled:true}") boolean enabled,
+            @Value("${app.admission.heavy.initial-limit:10}") int heavyInitial,
+            @Value("${app.admission.heavy.max-limit:40}") int heavyMax,
+            @Value("${app.admission.light.initial-limit:50}") int lightInitial,
+            @Value("${app.admission.light.max-limit:400}") int lightMax) {
+        this(enabled, new AdaptiveLimiter("heavy", heavyInitial, 1, heavyMax),
+                new AdaptiveLimiter("light", lightInitial, 1, lightMax));
+    }
+
+    AdmissionControlFilter(boolean enabled, AdaptiveLimiter heavy, AdaptiveLimiter light) {
+        this.enabled = enabled;
+        this.heavy = heavy;
+        this.light = light;
+    }
+
+    public AdaptiveLimiter getHeavyLimiter() {
+        return heavy;
+    }
+
+    public AdaptiveLimiter getLightLimiter() {
+        return light;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = pathOf(request);
+        return !enabled || !path.startsWith("/api/") || SUBSCRIPTIONS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        AdaptiveLimiter limiter = isHeavy(request) ? heavy : light;
+
+        if (!limiter.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Over " + limiter.getName() + " concurrency limit");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            chain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                // Streaming responses hold the permit until they finish, but their
+                // duration says nothing about backend latency
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limiter));
+                released = true;
+            }
+        } finally {
+            if (!released) {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    static boolean isHeavy(HttpServletRequest request) {
+        String path = pathOf(request);
+        String method = request.getMethod();
+
+        if ("POST".equals(method)) {
+            return "/api/appointment".equals(path);
+        }
+        return COLLECTIONS.contains(path);
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static class ReleaseOnComplete implements AsyncListener {
+
+        private final AdaptiveLimiter limiter;
+        private boolean released;
+
+        ReleaseOnComplete(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                limiter.releaseWithoutSample();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listener stays registered for the re-dispatched request
+        }
+    }
+}
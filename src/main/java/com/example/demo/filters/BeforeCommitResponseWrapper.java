@@ -0,0 +1,68 @@
+package com.example.demo.filters;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Runs a callback once, right before the response body starts, while headers can still
+ * be added. Call {@link #beforeCommit()} after the chain for responses without a body.
+ */
+public class BeforeCommitResponseWrapper extends HttpServletResponseWrapper {
+
+    private final Runnable callback;
+    private boolean done;
+
+    public BeforeCommitResponseWrapper(HttpServletResponse response, Runnable callback) {
+        super(response);
+        this.callback = callback;
+    }
+
+    public void beforeCommit() {
+        if (!done) {
+            done = true;
+            if (!isCommitted()) {
+                callback.run();
+            }
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        beforeCommit();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        beforeCommit();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beforeCommit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        beforeCommit();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        beforeCommit();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        beforeCommit();
+        super.sendRedirect(location);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.filters;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Measures the heap bytes allocated and the CPU time spent by the request thread for each
+ * /api handler, as the http.server.requests.allocated and http.server.requests.cpu meters.
+ * With app.resource-usage.headers=true they are also returned as X-Allocated-Bytes and
+ * X-CPU-Time-Us. Streamed responses only count the work done on the request thread.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+public class ResourceUsageFilter extends OncePerRequestFilter {
+
+    public static final String ALLOCATED_HEADER = "X-Allocated-Bytes";
+    public static final String CPU_HEADER = "X-CPU-Time-Us";
+
+    static final String UNMAPPED = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean headers;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocations;
+    private final Map<Object, HandlerMeters> meters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResourceUsageFilter(ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${app.resource-usage.enabled:true}") boolean enabled,
+            @Value("${app.resource-usage.headers:false}") boolean headers) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), enabled, headers);
+    }
+
+    public ResourceUsageFilter(MeterRegistry meterRegistry, boolean enabled, boolean headers) {
+        this.meterRegistry = meterRegistry;
+        this.headers = headers;
+        this.allocations = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                        ? (com.sun.management.ThreadMXBean) threads : null;
+        this.enabled = enabled && allocations != null && threads.isCurrentThreadCpuTimeSupported();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocations.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+
+        BeforeCommitResponseWrapper wrapper = new BeforeCommitResponseWrapper(response, () -> {
+            if (headers) {
+                response.setHeader(ALLOCATED_HEADER,
+                        String.valueOf(allocations.getThreadAllocatedBytes(threadId) - allocatedBefore));
+                response.setHeader(CPU_HEADER,
+                        String.valueOf(TimeUnit.NANOSECONDS.toMicros(threads.getCurrentThreadCpuTime() - cpuBefore)));
+            }
+        });
+
+        try {
+            chain.doFilter(request, wrapper);
+            wrapper.beforeCommit();
+        } finally {
+            long allocated = allocations.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+            metersFor(request).record(allocated, cpu);
+        }
+    }
+
+    private HandlerMeters metersFor(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod)) {
+            return meters.computeIfAbsent(UNMAPPED, key -> new HandlerMeters(UNMAPPED));
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        return meters.computeIfAbsent(handlerMethod.getMethod(), key -> new HandlerMeters(
+                handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName()));
+    }
+
+    private final class HandlerMeters {
+
+        private final DistributionSummary allocated;
+        private final Timer cpu;
+
+        HandlerMeters(String handler) {
+            allocated = DistributionSummary.builder("http.server.requests.allocated")
+                    .description("Heap allocated by the request thread")
+                    .baseUnit("bytes")
+                    .tag("handler", handler)
+                    .register(meterRegistry);
+            cpu = Timer.builder("http.server.requests.cpu")
+                    .description("CPU time of the request thread")
+                    .tag("handler", handler)
+                    .register(meterRegistry);
+        }
+
+        void record(long allocatedBytes, long cpuNanos) {
+            allocated.record(allocatedBytes);
+            cpu.record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.filters;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.demo.persistence.SqlStatementCounter;
+
+/**
+ * Counts the SQL statements and JDBC time of each /api request. Requests over the
+ * thresholds are logged; with app.sql-stats.headers=true the numbers are also returned as
+ * X-SQL-Statements and X-SQL-Time-Ms. Streamed responses only report what ran before
+ * their first byte.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsFilter.class);
+
+    @Value("${app.sql-stats.headers:false}")
+    private boolean headers;
+
+    @Value("${app.sql-stats.warn-statements:20}")
+    private int warnStatements;
+
+    @Value("${app.sql-stats.warn-millis:200}")
+    private long warnMillis;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        BeforeCommitResponseWrapper wrapper = new BeforeCommitResponseWrapper(response, () -> {
+            if (headers) {
+                response.setHeader(STATEMENTS_HEADER, String.valueOf(counter.getStatements()));
+                response.setHeader(TIME_HEADER, String.valueOf(counter.getJdbcMillis()));
+            }
+        });
+
+        try {
+            chain.doFilter(request, wrapper);
+            wrapper.beforeCommit();
+        } finally {
+            counter.stop();
+        }
+
+        if (counter.getStatements() > warnStatements || counter.getJdbcMillis() > warnMillis) {
+            log.warn("{} {} ran {} SQL statements in {} ms", request.getMethod(), request.getRequestURI(),
+                    counter.getStatements(), counter.getJdbcMillis());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.jfr;
+
+import com.example.demo.entities.Appointment;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One POST /api/appointment, from request body to response status. */
+@Name("com.example.demo.Booking")
+@Label("Booking")
+@Category({ "Hospital", "Booking" })
+@Description("Handling of a booking request")
+@StackTrace(false)
+public class BookingEvent extends Event {
+
+    @Label("Room")
+    String room;
+
+    @Label("Starts At")
+    String startsAt;
+
+    @Label("Finishes At")
+    String finishesAt;
+
+    @Label("Status")
+    int status;
+
+    public static BookingEvent begin(Appointment app) {
+        BookingEvent event = new BookingEvent();
+        event.begin();
+        if (event.isEnabled()) {
+            event.room = BookingPhaseEvent.roomOf(app);
+            event.startsAt = String.valueOf(app.getStartsAt());
+            event.finishesAt = String.valueOf(app.getFinishesAt());
+        }
+        return event;
+    }
+
+    public void commit(int status) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            commit();
+        }
+    }
+}
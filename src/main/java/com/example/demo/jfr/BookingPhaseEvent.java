@@ -0,0 +1,55 @@
+package com.example.demo.jfr;
+
+import com.example.demo.entities.Appointment;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A phase of a booking: validation, conflict scan or save. */
+@Name("com.example.demo.BookingPhase")
+@Label("Booking Phase")
+@Category({ "Hospital", "Booking" })
+@Description("Validation, conflict scan or save step of a booking request")
+@StackTrace(false)
+public class BookingPhaseEvent extends Event {
+
+    public static final String VALIDATION = "validation";
+    public static final String CONFLICT_SCAN = "conflict scan";
+    public static final String SAVE = "save";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Room")
+    String room;
+
+    @Label("Candidate Rows")
+    @Description("Existing appointments the phase looked at")
+    int candidateRows;
+
+    public static BookingPhaseEvent begin(String phase, Appointment app) {
+        BookingPhaseEvent event = new BookingPhaseEvent();
+        event.begin();
+        if (event.isEnabled()) {
+            event.phase = phase;
+            event.room = roomOf(app);
+        }
+        return event;
+    }
+
+    public void commit(int candidateRows) {
+        end();
+        if (shouldCommit()) {
+            this.candidateRows = candidateRows;
+            commit();
+        }
+    }
+
+    static String roomOf(Appointment app) {
+        return app.getRoom() == null ? null : app.getRoom().getRoomName();
+    }
+}
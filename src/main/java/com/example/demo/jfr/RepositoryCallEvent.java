@@ -0,0 +1,35 @@
+package com.example.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** A call through a Spring Data repository, with what it cost in SQL. */
+@Name("com.example.demo.RepositoryCall")
+@Label("Repository Call")
+@Category({ "Hospital", "Persistence" })
+@Description("Invocation of a Spring Data repository method")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Rows")
+    @Description("Entities returned, -1 when the method does not return entities")
+    int rows;
+
+    @Label("SQL Statements")
+    int statements;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,57 @@
+package com.example.demo.jfr;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import com.example.demo.persistence.SqlStatementCounter;
+
+class RepositoryCallInterceptor implements MethodInterceptor {
+
+    private final String repository;
+
+    RepositoryCallInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            counter.stop();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.method = invocation.getMethod().getName();
+                event.rows = rowsOf(result);
+                event.statements = counter.getStatements();
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static int rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.jfr;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/** Wraps every Spring Data repository so its calls show up as {@link RepositoryCallEvent}s. */
+@Component
+public class RepositoryEventsPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                            proxyFactory.addAdvice(new RepositoryCallInterceptor(
+                                    repositoryInformation.getRepositoryInterface()))));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.json;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+/**
+ * LocalDateTime as {@value #PATTERN}, the one format the API uses, written digit by digit
+ * into the generator and read straight from the parser's buffer, without going through a
+ * {@link DateTimeFormatter}. Anything outside the fast path (years beyond 1-9999, text of
+ * another length or with invalid fields, non-string tokens) is handed to the regular jsr310
+ * serializer and deserializer with the same pattern, so output and errors do not change.
+ */
+public final class DateTimeCodec {
+
+    public static final String PATTERN = "HH:mm dd/MM/yyyy";
+
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    private static final int LENGTH = PATTERN.length();
+
+    private DateTimeCodec() {
+    }
+
+    /** A property's @JsonFormat that asks for nothing but this pattern keeps the fast path. */
+    static boolean isDefault(JsonFormat.Value format) {
+        return format == null
+                || ((!format.hasShape() || format.getShape() == JsonFormat.Shape.STRING)
+                        && (!format.hasPattern() || PATTERN.equals(format.getPattern()))
+                        && !format.hasLocale() && !format.hasTimeZone() && !format.hasLenient());
+    }
+
+    public static class Serializer extends LocalDateTimeSerializer {
+
+        private static final long serialVersionUID = 1L;
+
+        // Reused per thread; the generator copies it before writeString returns
+        private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[LENGTH]);
+
+        public Serializer() {
+            super(FORMATTER);
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property)
+                throws JsonMappingException {
+            if (isDefault(findFormatOverrides(prov, property, handledType()))) {
+                return this;
+            }
+            return super.createContextual(prov, property);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            int year = value.getYear();
+            // yyyy is the year of era, which only matches the year from 1 on
+            if (year < 1 || year > 9999) {
+                super.serialize(value, gen, provider);
+                return;
+            }
+            char[] text = BUFFER.get();
+            twoDigits(text, 0, value.getHour());
+            text[2] = ':';
+            twoDigits(text, 3, value.getMinute());
+            text[5] = ' ';
+            twoDigits(text, 6, value.getDayOfMonth());
+            text[8] = '/';
+            twoDigits(text, 9, value.getMonthValue());
+            text[11] = '/';
+            twoDigits(text, 12, year / 100);
+            twoDigits(text, 14, year % 100);
+            gen.writeString(text, 0, LENGTH);
+        }
+
+        private static void twoDigits(char[] text, int at, int value) {
+            text[at] = (char) ('0' + value / 10);
+            text[at + 1] = (char) ('0' + value % 10);
+        }
+    }
+
+    public static class Deserializer extends LocalDateTimeDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        public Deserializer() {
+            super(FORMATTER);
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property)
+                throws JsonMappingException {
+            if (isDefault(findFormatOverrides(ctxt, property, handledType()))) {
+                return this;
+            }
+            return super.createContextual(ctxt, property);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_STRING) && p.getTextLength() == LENGTH) {
+                LocalDateTime parsed = parse(p.getTextCharacters(), p.getTextOffset());
+                if (parsed != null) {
+                    return parsed;
+                }
+            }
+            return super.deserialize(p, ctxt);
+        }
+
+        /** The date and time at {@code text[at]}, or null to leave it to the formatter. */
+        private static LocalDateTime parse(char[] text, int at) {
+            if (text[at + 2] != ':' || text[at + 5] != ' ' || text[at + 8] != '/' || text[at + 11] != '/') {
+                return null;
+            }
+            int hour = twoDigits(text, at);
+            int minute = twoDigits(text, at + 3);
+            int day = twoDigits(text, at + 6);
+            int month = twoDigits(text, at + 9);
+            int century = twoDigits(text, at + 12);
+            int yearOfCentury = twoDigits(text, at + 14);
+            if ((hour | minute | day | month | century | yearOfCentury) < 0 || (century | yearOfCentury) == 0) {
+                return null;
+            }
+            try {
+                return LocalDateTime.of(century * 100 + yearOfCentury, month, day, hour, minute);
+            } catch (DateTimeException e) {
+                // e.g. 31/04 or 24:00, which the formatter's resolver turns into a valid date
+                return null;
+            }
+        }
+
+        private static int twoDigits(char[] text, int at) {
+            int high = text[at] - '0';
+            int low = text[at + 1] - '0';
+            if (high < 0 || high > 9 || low < 0 || low > 9) {
+                return -1;
+            }
+            return high * 10 + low;
+        }
+    }
+}
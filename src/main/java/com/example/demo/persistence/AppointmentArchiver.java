@@ -0,0 +1,116 @@
+package com.example.demo.persistence;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.BookingLogEntry;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.BookingLogRepository;
+import com.example.demo.schedule.BookingSchedule;
+
+/**
+ * Moves appointments that finished more than app.archive.horizon-days ago from appointment to
+ * appointment_archive, app.archive.chunk-size at a time, so conflict checks, the room schedules
+ * and the list endpoints only carry the appointments still in play. Each chunk is copied, then
+ * deleted, then dropped from the schedule, logged as archived and published as an
+ * {@link AppointmentsArchived} event; a chunk cut short is finished by the next run. Off
+ * unless app.archive.enabled is set.
+ */
+@Component
+public class AppointmentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentArchiver.class);
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    BookingLogRepository bookingLogRepository;
+
+    @Autowired
+    BookingSchedule bookingSchedule;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.archive.enabled:false}")
+    boolean enabled;
+
+    @Value("${app.archive.horizon-days:365}")
+    int horizonDays;
+
+    @Value("${app.archive.chunk-size:1000}")
+    int chunkSize;
+
+    @Scheduled(initialDelayString = "${app.archive.initial-delay-ms:600000}",
+            fixedDelayString = "${app.archive.interval-ms:3600000}")
+    public void archiveFinished() {
+        if (enabled) {
+            archive(LocalDateTime.now().minusDays(horizonDays));
+        }
+    }
+
+    /** Archives every appointment that finished before {@code horizon}; returns how many. */
+    public int archive(LocalDateTime horizon) {
+        long started = System.nanoTime();
+        int horizonMinute = Appointment.toEpochMinute(horizon);
+        int archived = 0;
+        while (true) {
+            List<Appointment> chunk = appointmentRepository.findByFinishesMinuteLessThanOrderById(horizonMinute,
+                    PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Appointment appointment : chunk) {
+                ids.add(appointment.getId());
+            }
+            appointmentRepository.copyToArchive(ids);
+            if (appointmentRepository.deleteArchived(ids) == 0) {
+                // Nothing moved; running the same chunk again would not either
+                log.warn("Could not archive appointments {} to {}", ids.get(0), ids.get(ids.size() - 1));
+                break;
+            }
+            int read = chunk.size();
+            // An appointment cancelled after the copy is also deleted from the archive by the
+            // cancel, and is neither logged nor published as archived
+            Set<Long> moved = new HashSet<>(appointmentRepository.findArchivedIds(ids));
+            chunk.removeIf(appointment -> !moved.contains(appointment.getId()));
+
+            List<BookingLogEntry> entries = new ArrayList<>(chunk.size());
+            for (Appointment appointment : chunk) {
+                if (appointment.getRoom() != null) {
+                    bookingSchedule.remove(appointment.getRoom().getId(), appointment.getId(),
+                            appointment.getStartsMinute());
+                }
+                entries.add(new BookingLogEntry(BookingLogEntry.ARCHIVED, appointment));
+            }
+            bookingLogRepository.saveAll(entries);
+            // Logged here in one batch, so BookingLog does not listen for it
+            eventPublisher.publishEvent(new AppointmentsArchived(chunk));
+            archived += chunk.size();
+            if (read < chunkSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} appointments finished before {} in {} ms", archived, horizon,
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+        return archived;
+    }
+}
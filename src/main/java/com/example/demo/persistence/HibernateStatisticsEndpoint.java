@@ -0,0 +1,77 @@
+package com.example.demo.persistence;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aggregated Hibernate statistics at /actuator/hibernate, with the queries that spent the
+ * most total time. A DELETE resets the counters.
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private static final int TOP_QUERIES = 20;
+
+    private final Statistics statistics;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("sessionsOpened", statistics.getSessionOpenCount());
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("connectionsObtained", statistics.getConnectCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("queriesExecuted", statistics.getQueryExecutionCount());
+        result.put("slowestQueryMillis", statistics.getQueryExecutionMaxTime());
+        result.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("entitiesLoaded", statistics.getEntityLoadCount());
+        result.put("entitiesFetched", statistics.getEntityFetchCount());
+        result.put("entitiesInserted", statistics.getEntityInsertCount());
+        result.put("entitiesDeleted", statistics.getEntityDeleteCount());
+        result.put("flushes", statistics.getFlushCount());
+        result.put("optimisticFailures", statistics.getOptimisticFailureCount());
+        result.put("topQueries", topQueries());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.clear();
+    }
+
+    private List<Map<String, Object>> topQueries() {
+        List<Map<String, Object>> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics stats = statistics.getQueryStatistics(query);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("query", query);
+            entry.put("executions", stats.getExecutionCount());
+            entry.put("totalMillis", stats.getExecutionTotalTime());
+            entry.put("avgMillis", stats.getExecutionAvgTime());
+            entry.put("maxMillis", stats.getExecutionMaxTime());
+            entry.put("rows", stats.getExecutionRowCount());
+            queries.add(entry);
+        }
+        queries.sort(Comparator.comparingLong((Map<String, Object> q) -> (Long) q.get("totalMillis")).reversed());
+        return queries.size() > TOP_QUERIES ? queries.subList(0, TOP_QUERIES) : queries;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.persistence;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.RoomRepository;
+
+/**
+ * Resolves room names, which the API uses, to the rooms and their numeric ids, which the
+ * appointment table references. Room names never change, so a resolved room stays valid
+ * until the room is deleted; misses are not cached.
+ */
+@Component
+public class RoomDirectory {
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    private final ConcurrentMap<String, Room> byName = new ConcurrentHashMap<>();
+
+    // Misses of the same name share one query
+    private final SingleFlight<String, Optional<Room>> lookups = new SingleFlight<>();
+
+    public Optional<Room> find(String roomName) {
+        Room room = byName.get(roomName);
+        if (room != null) {
+            return Optional.of(room);
+        }
+        Optional<Room> found = lookups.load(roomName, () -> roomRepository.findByRoomName(roomName));
+        found.ifPresent(r -> byName.put(roomName, r));
+        return found;
+    }
+
+    public Room findOrCreate(String roomName) {
+        Optional<Room> room = find(roomName);
+        if (room.isPresent()) {
+            return room.get();
+        }
+        Room created;
+        try {
+            created = roomRepository.save(new Room(roomName));
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another request
+            created = roomRepository.findByRoomName(roomName).orElseThrow(() -> e);
+        }
+        byName.put(roomName, created);
+        return created;
+    }
+
+    public void evict(String roomName) {
+        byName.remove(roomName);
+    }
+
+    public void clear() {
+        byName.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.persistence;
+
+/**
+ * Counts the JDBC statements executed on the current thread between start and stop.
+ *
+ * Scopes nest: stopping a scope restores the one that was active when it started.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<SqlStatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatementCounter previous;
+    private int statements;
+    private long jdbcNanos;
+
+    private SqlStatementCounter(SqlStatementCounter previous) {
+        this.previous = previous;
+    }
+
+    public static SqlStatementCounter start() {
+        SqlStatementCounter counter = new SqlStatementCounter(CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public void stop() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void record(long nanos) {
+        for (SqlStatementCounter counter = CURRENT.get(); counter != null; counter = counter.previous) {
+            counter.statements++;
+            counter.jdbcNanos += nanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+}
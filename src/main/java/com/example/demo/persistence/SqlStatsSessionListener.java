@@ -0,0 +1,36 @@
+package com.example.demo.persistence;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Feeds every statement and batch a Hibernate session executes into
+ * {@link SqlStatementCounter}. Registered through hibernate.session.events.auto, which
+ * creates one instance per session.
+ */
+public class SqlStatsSessionListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlStatementCounter.record(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlStatementCounter.record(System.nanoTime() - batchStart);
+    }
+}
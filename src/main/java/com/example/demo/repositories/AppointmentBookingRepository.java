@@ -0,0 +1,9 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.Appointment;
+
+public interface AppointmentBookingRepository {
+    // Saves a new appointment; a patient or doctor with an id is looked up instead of
+    // persisted again, a missing one fails with EntityNotFoundException
+    Appointment saveBooking(Appointment appointment);
+}
@@ -0,0 +1,74 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+class AppointmentBookingRepositoryImpl implements AppointmentBookingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Appointment saveBooking(Appointment appointment) {
+        // Persisting would cascade to a patient or doctor sent by id, which is detached
+        if (appointment.getPatient() != null && appointment.getPatient().getId() != 0) {
+            appointment.setPatient(existing(Patient.class, appointment.getPatient().getId()));
+        }
+        if (appointment.getDoctor() != null && appointment.getDoctor().getId() != 0) {
+            appointment.setDoctor(existing(Doctor.class, appointment.getDoctor().getId()));
+        }
+        if (appointment.getRoom() != null) {
+            // The row lock orders bookings of the room across every instance, so the check
+            // below sees whatever a competing booking committed first
+            Room room = entityManager.find(Room.class, appointment.getRoom().getId(),
+                    LockModeType.PESSIMISTIC_WRITE);
+            if (room == null) {
+                throw new EntityNotFoundException("Room " + appointment.getRoom().getId() + " does not exist");
+            }
+            appointment.setRoom(room);
+            checkSlotIsFree(room, appointment.getStartsMinute(), appointment.getFinishesMinute());
+        }
+        entityManager.persist(appointment);
+        return appointment;
+    }
+
+    // Same rule as Appointment.overlaps; every overlapping row starts before the new one
+    // finishes and finishes after it starts, which bounds the scan of ix_appointment_room_minute
+    private void checkSlotIsFree(Room room, int startsMinute, int finishesMinute) {
+        List<Object[]> conflicts = entityManager.createQuery(
+                "select a.id, a.startsMinute, a.finishesMinute from Appointment a"
+                        + " where a.room = :room and a.startsMinute < :finishes and a.finishesMinute > :starts"
+                        + " and (a.startsMinute = :starts or a.finishesMinute = :finishes"
+                        + " or :finishes < a.finishesMinute or a.startsMinute < :starts)",
+                Object[].class)
+                .setParameter("room", room)
+                .setParameter("starts", startsMinute)
+                .setParameter("finishes", finishesMinute)
+                .setMaxResults(1)
+                .getResultList();
+        if (!conflicts.isEmpty()) {
+            Object[] conflict = conflicts.get(0);
+            throw new SlotTakenException((Long) conflict[0], (Integer) conflict[1], (Integer) conflict[2]);
+        }
+    }
+
+    private <T> T existing(Class<T> type, long id) {
+        T entity = entityManager.find(type, id);
+        if (entity == null) {
+            throw new EntityNotFoundException(type.getSimpleName() + " " + id + " does not exist");
+        }
+        return entity;
+    }
+}
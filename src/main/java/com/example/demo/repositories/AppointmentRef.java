@@ -0,0 +1,70 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * An appointment with its patient and doctor as ids and its room by name, read from the
+ * appointment row and the room's name without loading any of them. The room's numeric id is
+ * internal, so it is not exposed. Serialized through the {@link #FILTER} property filter,
+ * which callers must set, so a request can pick a subset of {@link #FIELDS}.
+ */
+@JsonFilter(AppointmentRef.FILTER)
+public class AppointmentRef {
+
+    public static final String FILTER = "appointmentFields";
+
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "id", "patientId", "doctorId", "roomName", "startsAt", "finishesAt")));
+
+    private final long id;
+    private final Long patientId;
+    private final Long doctorId;
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentRef(long id, Long patientId, Long doctorId, String roomName, LocalDateTime startsAt,
+            LocalDateTime finishesAt) {
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public LocalDateTime getStartsAt() {
+        return startsAt;
+    }
+
+    public LocalDateTime getFinishesAt() {
+        return finishesAt;
+    }
+}
@@ -1,14 +1,68 @@
 
 package com.example.demo.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import com.example.demo.entities.Appointment;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentBookingRepository {
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
     List<Appointment> findAll();
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    List<Appointment> findAllById(Iterable<Long> ids);
+    // Patient and doctor ids come from the foreign key columns; only room is joined, for its name
+    @Query("select new com.example.demo.repositories.AppointmentRef(a.id, a.patient.id, a.doctor.id, r.roomName, "
+            + "a.startsAt, a.finishesAt) from Appointment a left join a.room r order by a.id")
+    List<AppointmentRef> findRefsOrderById();
+    @Query("select new com.example.demo.repositories.AppointmentRef(a.id, a.patient.id, a.doctor.id, r.roomName, "
+            + "a.startsAt, a.finishesAt) from Appointment a left join a.room r where a.id in ?1 order by a.id")
+    List<AppointmentRef> findRefsByIdInOrderById(Collection<Long> ids);
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    List<Appointment> findByIdGreaterThanOrderByIdAsc(long id, Pageable page);
+    // id, room id, starts minute, finishes minute; served from ix_appointment_room_minute
+    @Query("select a.id, a.room.id, a.startsMinute, a.finishesMinute from Appointment a order by a.room.id, a.startsMinute")
+    List<Object[]> findScheduleRows();
+    long countByRoomIsNotNull();
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    List<Appointment> findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(long doctorId,
+            LocalDateTime from, LocalDateTime to);
+    // Appointments finished before the minute, with what they were booked with for the archived
+    // event; served from ix_appointment_finishes
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    List<Appointment> findByFinishesMinuteLessThanOrderById(int beforeMinute, Pageable page);
+    // Both skip what is already done, so a chunk interrupted between them can be run again
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into appointment_archive (id, patient_id, doctor_id, room_id, starts_at, finishes_at, "
+            + "starts_minute, finishes_minute, archived_at) "
+            + "select a.id, a.patient_id, a.doctor_id, a.room_id, a.starts_at, a.finishes_at, a.starts_minute, "
+            + "a.finishes_minute, current_timestamp from appointment a "
+            + "where a.id in (:ids) and not exists (select 1 from appointment_archive x where x.id = a.id)",
+            nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids);
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from appointment where id in (:ids) "
+            + "and id in (select x.id from appointment_archive x where x.id in (:ids))", nativeQuery = true)
+    int deleteArchived(@Param("ids") List<Long> ids);
+    // Which of the ids made it to the archive; one cancelled mid-chunk did not
+    @Query("select x.id from ArchivedAppointment x where x.id in (:ids)")
+    List<Long> findArchivedIds(@Param("ids") List<Long> ids);
+    // Drops the copy of an appointment cancelled while its chunk was being archived
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from ArchivedAppointment x where x.id = :id")
+    int deleteFromArchive(@Param("id") long id);
 }
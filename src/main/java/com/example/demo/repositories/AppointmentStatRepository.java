@@ -0,0 +1,22 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.demo.entities.AppointmentStat;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AppointmentStatRepository extends JpaRepository<AppointmentStat, AppointmentStat.Key> {
+    List<AppointmentStat> findByDimensionAndSubjectIdOrderByPeriodStart(String dimension, long subjectId);
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update AppointmentStat s set s.appointments = s.appointments + :delta "
+            + "where s.dimension = :dimension and s.subjectId = :subjectId and s.periodStart = :periodStart")
+    int add(@Param("dimension") String dimension, @Param("subjectId") long subjectId,
+            @Param("periodStart") LocalDate periodStart, @Param("delta") int delta);
+}
@@ -0,0 +1,15 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.entities.ArchivedAppointment;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+    // Served from ix_appointment_archive_starts
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    List<ArchivedAppointment> findByStartsMinuteGreaterThanEqualAndStartsMinuteLessThanOrderByStartsMinute(
+            int fromMinute, int toMinute);
+}
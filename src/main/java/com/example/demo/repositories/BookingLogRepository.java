@@ -0,0 +1,18 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+
+import com.example.demo.entities.BookingLogEntry;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface BookingLogRepository extends JpaRepository<BookingLogEntry, Long> {
+    // Position of the last entry, 0 for an empty log
+    @Query("select coalesce(max(e.id), 0) from BookingLogEntry e")
+    long lastId();
+    // id, type, appointment id, room id, starts minute, finishes minute; in the order they happened
+    @Query("select e.id, e.type, e.appointmentId, e.roomId, e.startsMinute, e.finishesMinute from BookingLogEntry e where e.id > ?1 order by e.id")
+    List<Object[]> findReplayRowsByIdGreaterThan(long id);
+    List<BookingLogEntry> findByAppointmentIdOrderById(long appointmentId);
+}
@@ -4,10 +4,12 @@ import java.util.List;
 
 import com.example.demo.entities.Doctor;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findAll();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+    List<Doctor> findByIdGreaterThanOrderByIdAsc(long id, Pageable page);
 }
@@ -6,12 +6,14 @@ import java.util.Optional;
 
 import com.example.demo.entities.Room;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, Integer> {
     List<Room> findAll();
     Optional<Room> findByRoomName(String roomName);
     Room save(Room room);
     void delete(Room room);
     void deleteByRoomName(String roomName);
+    List<Room> findByRoomNameGreaterThanOrderByRoomNameAsc(String roomName, Pageable page);
 }
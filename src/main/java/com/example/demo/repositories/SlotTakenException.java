@@ -0,0 +1,29 @@
+package com.example.demo.repositories;
+
+// Thrown by saveBooking when the table already holds an appointment in the room that
+// overlaps the new one, e.g. one booked through another instance
+public class SlotTakenException extends RuntimeException {
+
+    private final long appointmentId;
+    private final int startsMinute;
+    private final int finishesMinute;
+
+    public SlotTakenException(long appointmentId, int startsMinute, int finishesMinute) {
+        super("Appointment " + appointmentId + " already takes the slot");
+        this.appointmentId = appointmentId;
+        this.startsMinute = startsMinute;
+        this.finishesMinute = finishesMinute;
+    }
+
+    public long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public int getStartsMinute() {
+        return startsMinute;
+    }
+
+    public int getFinishesMinute() {
+        return finishesMinute;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.schedule;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.BookingLogEntry;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsCleared;
+import com.example.demo.repositories.BookingLogRepository;
+
+/**
+ * Appends every booking, cancellation and clear to the booking_log table. Each entry is
+ * written after the schedule has been changed, so a snapshot taken at any log position
+ * already holds every entry up to it; {@link BookingSchedule} replays the rest on start.
+ */
+@Component
+public class BookingLog {
+
+    @Autowired
+    BookingLogRepository bookingLogRepository;
+
+    @EventListener
+    public void onBooked(AppointmentBooked event) {
+        // Under the room's lock, so a room's entries are in booking order
+        bookingLogRepository.save(new BookingLogEntry(BookingLogEntry.BOOKED, event.getAppointment()));
+    }
+
+    @EventListener
+    public void onCancelled(AppointmentCancelled event) {
+        bookingLogRepository.save(new BookingLogEntry(BookingLogEntry.CANCELLED, event.getAppointment()));
+    }
+
+    @EventListener
+    public void onCleared(AppointmentsCleared event) {
+        bookingLogRepository.save(new BookingLogEntry(BookingLogEntry.CLEARED, null));
+    }
+}
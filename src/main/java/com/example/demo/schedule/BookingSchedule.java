@@ -0,0 +1,234 @@
+package com.example.demo.schedule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.BookingLogEntry;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.BookingLogRepository;
+
+/**
+ * In-memory copy of every room's schedule, loaded from the appointment table on first use
+ * and kept up to date by the booking and cancel endpoints of this instance. Appointments
+ * written to the table by anything else are only picked up by {@link #clear()} or a restart,
+ * or when saving a booking runs into one; it is a fast reject, and the save still checks the
+ * table under a lock on the room row.
+ * <p>
+ * With app.schedule.snapshot-file set, the schedule is saved to a {@link ScheduleSnapshot}
+ * after loading and on shutdown, together with the position in the {@link BookingLog} it
+ * covers. The next start maps that file and replays the log entries after that position. If
+ * the result does not hold as many appointments as the table, something bypassed the log and
+ * everything is reloaded.
+ */
+@Component
+public class BookingSchedule {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingSchedule.class);
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    BookingLogRepository bookingLogRepository;
+
+    @Value("${app.schedule.snapshot-file:}")
+    String snapshotFile;
+
+    private final ConcurrentMap<Integer, RoomSchedule> rooms = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /** The schedule of a room; synchronize on it to check and book atomically. */
+    public RoomSchedule forRoom(int roomId) {
+        ensureLoaded();
+        return rooms.computeIfAbsent(roomId, id -> new RoomSchedule());
+    }
+
+    public void remove(int roomId, long appointmentId, int startsMinute) {
+        ensureLoaded();
+        RoomSchedule schedule = rooms.get(roomId);
+        if (schedule != null) {
+            synchronized (schedule) {
+                schedule.remove(appointmentId, startsMinute);
+            }
+        }
+    }
+
+    /** See {@link RoomSchedule#intervals}; empty for a room without appointments. */
+    public int[][] intervals(int roomId, int fromMinute, int toMinute) {
+        ensureLoaded();
+        RoomSchedule schedule = rooms.get(roomId);
+        if (schedule == null) {
+            return new int[][] {new int[0], new int[0]};
+        }
+        synchronized (schedule) {
+            return schedule.intervals(fromMinute, toMinute);
+        }
+    }
+
+    /** Drops everything, snapshot included; the next call reloads from the appointment table. */
+    public synchronized void clear() {
+        loaded = false;
+        rooms.clear();
+        if (snapshotPath() != null) {
+            try {
+                Files.deleteIfExists(snapshotPath());
+            } catch (IOException e) {
+                log.warn("Could not delete schedule snapshot {}", snapshotPath(), e);
+            }
+        }
+    }
+
+    /** Saves the schedule if anything changed since it was mapped. */
+    @PreDestroy
+    public synchronized void saveSnapshot() {
+        if (!loaded || snapshotPath() == null || rooms.values().stream().noneMatch(this::hasChanges)) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            log.warn("Could not save schedule snapshot {}", snapshotPath(), e);
+        }
+    }
+
+    private boolean hasChanges(RoomSchedule room) {
+        synchronized (room) {
+            return room.hasChanges();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        Path snapshotPath = snapshotPath();
+        if (snapshotPath != null) {
+            try {
+                if (loadSnapshot(snapshotPath)) {
+                    loaded = true;
+                    return;
+                }
+            } catch (IOException e) {
+                log.warn("Could not read schedule snapshot {}, reloading from the database", snapshotPath, e);
+                rooms.clear();
+            }
+        }
+
+        // Read first: every entry up to here changed the table before the rows are read
+        long logPosition = snapshotPath != null ? bookingLogRepository.lastId() : 0;
+        // Rows come in (room, start) order, so every add is an append
+        addRows(appointmentRepository.findScheduleRows());
+        if (snapshotPath != null) {
+            try {
+                writeAndRemap(snapshotPath, logPosition);
+            } catch (IOException e) {
+                log.warn("Could not save schedule snapshot {}", snapshotPath, e);
+            }
+        }
+        loaded = true;
+    }
+
+    private boolean loadSnapshot(Path snapshotPath) throws IOException {
+        long started = System.nanoTime();
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(snapshotPath);
+        if (snapshot == null) {
+            return false;
+        }
+        rooms.putAll(snapshot.rooms());
+        List<Object[]> tail = bookingLogRepository.findReplayRowsByIdGreaterThan(snapshot.logPosition());
+        replay(tail);
+
+        long scheduled = rooms.values().stream().mapToLong(RoomSchedule::size).sum();
+        long rows = appointmentRepository.countByRoomIsNotNull();
+        if (scheduled != rows) {
+            log.info("Schedule snapshot {} plus {} log entries holds {} appointments, the database {}; reloading",
+                    snapshotPath, tail.size(), scheduled, rows);
+            rooms.clear();
+            return false;
+        }
+        if (!tail.isEmpty()) {
+            // Folds the replay back into the file so the heap only holds this run's bookings
+            long lastReplayed = (Long) tail.get(tail.size() - 1)[0];
+            writeAndRemap(snapshotPath, lastReplayed);
+        }
+        log.info("Mapped {} appointments from {} and replayed {} log entries in {} ms", snapshot.count(),
+                snapshotPath, tail.size(), (System.nanoTime() - started) / 1_000_000);
+        return true;
+    }
+
+    /** Applies booking log rows; entries the snapshot already reflects change nothing. */
+    private void replay(List<Object[]> entries) {
+        for (Object[] entry : entries) {
+            String type = (String) entry[1];
+            if (BookingLogEntry.CLEARED.equals(type)) {
+                rooms.clear();
+                continue;
+            }
+            if (entry[2] == null || entry[3] == null) {
+                continue;
+            }
+            long appointmentId = (Long) entry[2];
+            int startsMinute = (Integer) entry[4];
+            RoomSchedule room = rooms.computeIfAbsent((Integer) entry[3], id -> new RoomSchedule());
+            if (BookingLogEntry.BOOKED.equals(type)) {
+                if (!room.contains(appointmentId, startsMinute)) {
+                    room.add(appointmentId, startsMinute, (Integer) entry[5]);
+                }
+            } else if (BookingLogEntry.CANCELLED.equals(type) || BookingLogEntry.ARCHIVED.equals(type)) {
+                room.remove(appointmentId, startsMinute);
+            }
+        }
+    }
+
+    private void addRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                rooms.computeIfAbsent((Integer) row[1], id -> new RoomSchedule())
+                        .add((Long) row[0], (Integer) row[2], (Integer) row[3]);
+            }
+        }
+    }
+
+    private void write() throws IOException {
+        // Taken before the rooms are copied; a change that slips in after its room was copied
+        // has a later log entry and is replayed again on the next start
+        write(bookingLogRepository.lastId());
+    }
+
+    private void write(long logPosition) throws IOException {
+        ScheduleSnapshot.write(snapshotPath(), rooms, logPosition);
+    }
+
+    /** Saves the schedule and swaps the heap arrays for the mapped file. */
+    private void writeAndRemap(Path snapshotPath, long logPosition) throws IOException {
+        write(logPosition);
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(snapshotPath);
+        if (snapshot != null) {
+            rooms.clear();
+            rooms.putAll(snapshot.rooms());
+        }
+    }
+
+    private Path snapshotPath() {
+        return snapshotFile == null || snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.schedule;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.events.AppointmentsCleared;
+import com.example.demo.persistence.SingleFlight;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+
+/**
+ * Each doctor's appointments for a day, sorted by start. A day is read from the database the
+ * first time it is asked for and then kept current from the booking and cancel events, so
+ * refreshing an agenda does not touch the database. The free days of doctors that do not
+ * exist are not kept. Archived appointments leave the agenda: it lists only what is still in
+ * the appointment table.
+ * <p>
+ * Bookings made through other instances raise no event here, so a day is read again once it
+ * is older than app.agenda.ttl-ms.
+ */
+@Component
+public class DoctorAgenda {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Value("${app.agenda.max-days:10000}")
+    int maxDays;
+
+    @Value("${app.agenda.ttl-ms:5000}")
+    long ttlMs;
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentMap<Key, Day> days = new ConcurrentHashMap<>();
+
+    // Readers of a day that is not kept share one query, run outside the map
+    private final SingleFlight<Key, List<Appointment>> loads = new SingleFlight<>();
+
+    // Bumped by every event before it is applied, so a load can tell it may have missed one
+    private final AtomicLongArray changes = new AtomicLongArray(STRIPES);
+
+    public List<Appointment> forDay(long doctorId, LocalDate date) {
+        Key key = new Key(doctorId, date);
+        Day day = days.get(key);
+        if (day != null && !day.isOlderThan(ttlMs)) {
+            return day.appointments();
+        }
+        return loads.load(key, () -> load(key));
+    }
+
+    private List<Appointment> load(Key key) {
+        long seen = changes.get(key.stripe());
+        List<Appointment> appointments =
+                appointmentRepository.findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                        key.doctorId, key.date.atStartOfDay(), key.date.plusDays(1).atStartOfDay());
+        if (appointments.isEmpty() && !doctorRepository.existsById(key.doctorId)) {
+            return appointments;
+        }
+        if (days.size() >= maxDays) {
+            evict();
+        }
+        Day day = new Day(appointments);
+        Day kept = days.putIfAbsent(key, day);
+        if (kept != null) {
+            if (!kept.isOlderThan(ttlMs)) {
+                return kept.appointments();
+            }
+            if (!days.replace(key, kept, day)) {
+                return appointments;
+            }
+        }
+        if (changes.get(key.stripe()) != seen) {
+            // An event for this stripe may have come between the query and putIfAbsent and not
+            // found the day; the next read loads it again
+            days.remove(key, day);
+        }
+        return appointments;
+    }
+
+    @EventListener
+    public void onBooked(AppointmentBooked event) {
+        Appointment appointment = event.getAppointment();
+        Key key = keyOf(appointment);
+        if (key != null) {
+            changes.incrementAndGet(key.stripe());
+            days.computeIfPresent(key, (k, day) -> day.add(appointment));
+        }
+    }
+
+    @EventListener
+    public void onCancelled(AppointmentCancelled event) {
+        Appointment appointment = event.getAppointment();
+        Key key = keyOf(appointment);
+        if (key != null) {
+            changes.incrementAndGet(key.stripe());
+            days.computeIfPresent(key, (k, day) -> day.remove(appointment.getId()));
+        }
+    }
+
+    @EventListener
+    public void onArchived(AppointmentsArchived event) {
+        for (Appointment appointment : event.getAppointments()) {
+            Key key = keyOf(appointment);
+            if (key != null) {
+                changes.incrementAndGet(key.stripe());
+                days.computeIfPresent(key, (k, day) -> day.remove(appointment.getId()));
+            }
+        }
+    }
+
+    @EventListener
+    public void onCleared(AppointmentsCleared event) {
+        for (int i = 0; i < STRIPES; i++) {
+            changes.incrementAndGet(i);
+        }
+        days.clear();
+    }
+
+    /** Past days go first; if that is not enough, everything does. */
+    private void evict() {
+        LocalDate today = LocalDate.now();
+        days.keySet().removeIf(key -> key.date.isBefore(today));
+        if (days.size() >= maxDays) {
+            days.clear();
+        }
+    }
+
+    private static Key keyOf(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getStartsAt() == null) {
+            return null;
+        }
+        return new Key(appointment.getDoctor().getId(), appointment.getStartsAt().toLocalDate());
+    }
+
+    private static final class Key {
+
+        private final long doctorId;
+        private final LocalDate date;
+
+        Key(long doctorId, LocalDate date) {
+            this.doctorId = doctorId;
+            this.date = date;
+        }
+
+        int stripe() {
+            return hashCode() & (STRIPES - 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return doctorId == other.doctorId && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, date);
+        }
+    }
+
+    /** Copy-on-write, so readers get a stable list without locking. */
+    private static final class Day {
+
+        private volatile List<Appointment> appointments;
+        private final long loadedAt = System.nanoTime();
+
+        Day(List<Appointment> appointments) {
+            this.appointments = appointments;
+        }
+
+        boolean isOlderThan(long ttlMs) {
+            return System.nanoTime() - loadedAt >= TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        }
+
+        List<Appointment> appointments() {
+            return appointments;
+        }
+
+        Day add(Appointment appointment) {
+            List<Appointment> updated = new ArrayList<>(appointments.size() + 1);
+            int at = appointments.size();
+            for (int i = 0; i < appointments.size(); i++) {
+                Appointment existing = appointments.get(i);
+                if (existing.getId() == appointment.getId()) {
+                    // Already read by the load this event raced with
+                    return this;
+                }
+                if (at == appointments.size() && existing.getStartsMinute() > appointment.getStartsMinute()) {
+                    at = i;
+                }
+            }
+            updated.addAll(appointments.subList(0, at));
+            updated.add(appointment);
+            updated.addAll(appointments.subList(at, appointments.size()));
+            appointments = updated;
+            return this;
+        }
+
+        Day remove(long appointmentId) {
+            List<Appointment> updated = new ArrayList<>(appointments);
+            updated.removeIf(a -> a.getId() == appointmentId);
+            appointments = updated;
+            return this;
+        }
+    }
+}
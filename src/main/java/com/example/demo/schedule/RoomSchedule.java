@@ -0,0 +1,334 @@
+package com.example.demo.schedule;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.example.demo.entities.Appointment;
+
+/**
+ * The appointments of one room as parallel primitive arrays sorted by start minute. A
+ * conflict check binary-searches the starts and only looks at the few appointments that can
+ * still be running, instead of every appointment in the room. Callers synchronize on the
+ * instance; {@link BookingSchedule} hands out one per room.
+ * <p>
+ * A room loaded from a {@link ScheduleSnapshot} reads its history straight from the mapped
+ * file; only bookings made since, and the ids of cancelled snapshot rows, are on the heap.
+ */
+public class RoomSchedule {
+
+    public static final long NONE = -1;
+
+    private int[] starts = new int[16];
+    private int[] finishes = new int[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    // Longest finish - start among the sorted entries; never shrinks on removal
+    private int maxLength;
+
+    // Entries that finish at or before they start (rows not written through the API), which
+    // the start window below cannot bound, so they are checked one by one
+    private int[] oddStarts = new int[0];
+    private int[] oddFinishes = new int[0];
+    private long[] oddIds = new long[0];
+
+    // Snapshot records of this room, [base, base + baseCount), and the cancelled ones among them
+    private final ByteBuffer snapshot;
+    private final int base;
+    private final int baseCount;
+    private final int baseMaxLength;
+    private final int[] baseOdd;
+    private final Set<Long> baseRemoved = new HashSet<>();
+
+    public RoomSchedule() {
+        this(null, 0, 0, 0, new int[0]);
+    }
+
+    RoomSchedule(ByteBuffer snapshot, int base, int baseCount, int baseMaxLength, int[] baseOdd) {
+        this.snapshot = snapshot;
+        this.base = base;
+        this.baseCount = baseCount;
+        this.baseMaxLength = baseMaxLength;
+        this.baseOdd = baseOdd;
+    }
+
+    /** Id of an appointment that clashes with {@code [starts, finishes)}, or {@link #NONE}. */
+    public long findConflict(int starts, int finishes) {
+        // Every clash either starts at the same minute or runs past starts, so it began after
+        // starts - maxLength; and it began before finishes
+        long from = (long) starts - maxLength;
+        int i = from <= Integer.MIN_VALUE ? 0 : lowerBound(this.starts, size, (int) from);
+        for (; i < size && (this.starts[i] < finishes || this.starts[i] == starts); i++) {
+            if (Appointment.overlaps(this.starts[i], this.finishes[i], starts, finishes)) {
+                return ids[i];
+            }
+        }
+        for (int j = 0; j < oddIds.length; j++) {
+            if (Appointment.overlaps(oddStarts[j], oddFinishes[j], starts, finishes)) {
+                return oddIds[j];
+            }
+        }
+        return snapshot == null ? NONE : findSnapshotConflict(starts, finishes);
+    }
+
+    private long findSnapshotConflict(int starts, int finishes) {
+        long from = (long) starts - baseMaxLength;
+        int i = from <= Integer.MIN_VALUE ? 0 : snapshotLowerBound((int) from);
+        for (; i < baseCount && (snapshotStarts(i) < finishes || snapshotStarts(i) == starts); i++) {
+            if (Appointment.overlaps(snapshotStarts(i), snapshotFinishes(i), starts, finishes)
+                    && !baseRemoved.contains(snapshotId(i))) {
+                return snapshotId(i);
+            }
+        }
+        for (int j : baseOdd) {
+            if (Appointment.overlaps(snapshotStarts(j), snapshotFinishes(j), starts, finishes)
+                    && !baseRemoved.contains(snapshotId(j))) {
+                return snapshotId(j);
+            }
+        }
+        return NONE;
+    }
+
+    public void add(long id, int starts, int finishes) {
+        if (finishes <= starts) {
+            int n = oddIds.length;
+            oddStarts = Arrays.copyOf(oddStarts, n + 1);
+            oddFinishes = Arrays.copyOf(oddFinishes, n + 1);
+            oddIds = Arrays.copyOf(oddIds, n + 1);
+            oddStarts[n] = starts;
+            oddFinishes[n] = finishes;
+            oddIds[n] = id;
+            return;
+        }
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.finishes = Arrays.copyOf(this.finishes, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        // Appends when loading in start order, shifts the tail otherwise
+        int at = size > 0 && this.starts[size - 1] <= starts ? size : upperBound(this.starts, size, starts);
+        System.arraycopy(this.starts, at, this.starts, at + 1, size - at);
+        System.arraycopy(this.finishes, at, this.finishes, at + 1, size - at);
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        this.starts[at] = starts;
+        this.finishes[at] = finishes;
+        ids[at] = id;
+        size++;
+        maxLength = Math.max(maxLength, finishes - starts);
+    }
+
+    public boolean remove(long id, int starts) {
+        for (int i = lowerBound(this.starts, size, starts); i < size && this.starts[i] == starts; i++) {
+            if (ids[i] == id) {
+                System.arraycopy(this.starts, i + 1, this.starts, i, size - i - 1);
+                System.arraycopy(this.finishes, i + 1, this.finishes, i, size - i - 1);
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        for (int j = 0; j < oddIds.length; j++) {
+            if (oddIds[j] == id) {
+                oddStarts = without(oddStarts, j);
+                oddFinishes = without(oddFinishes, j);
+                long[] rest = new long[oddIds.length - 1];
+                System.arraycopy(oddIds, 0, rest, 0, j);
+                System.arraycopy(oddIds, j + 1, rest, j, rest.length - j);
+                oddIds = rest;
+                return true;
+            }
+        }
+        return snapshot != null && removeFromSnapshot(id, starts);
+    }
+
+    private boolean removeFromSnapshot(long id, int starts) {
+        for (int i = snapshotLowerBound(starts); i < baseCount && snapshotStarts(i) == starts; i++) {
+            if (snapshotId(i) == id) {
+                return baseRemoved.add(id);
+            }
+        }
+        for (int j : baseOdd) {
+            if (snapshotId(j) == id) {
+                return baseRemoved.add(id);
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(long id, int starts) {
+        for (int i = lowerBound(this.starts, size, starts); i < size && this.starts[i] == starts; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        for (long oddId : oddIds) {
+            if (oddId == id) {
+                return true;
+            }
+        }
+        if (snapshot == null || baseRemoved.contains(id)) {
+            return false;
+        }
+        for (int i = snapshotLowerBound(starts); i < baseCount && snapshotStarts(i) == starts; i++) {
+            if (snapshotId(i) == id) {
+                return true;
+            }
+        }
+        for (int j : baseOdd) {
+            if (snapshotId(j) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + oddIds.length + baseCount - baseRemoved.size();
+    }
+
+    /**
+     * Starts and finishes, as {@code [starts[], finishes[]]} sorted by start, of the appointments
+     * that overlap {@code [from, to)} and last at least a minute.
+     */
+    int[][] intervals(int from, int to) {
+        int[] s = new int[16];
+        int[] f = new int[16];
+        int n = 0;
+        long windowFrom = (long) from - maxLength;
+        int i = windowFrom <= Integer.MIN_VALUE ? 0 : lowerBound(starts, size, (int) windowFrom);
+        long baseFrom = (long) from - baseMaxLength;
+        int b = snapshot == null ? baseCount : baseFrom <= Integer.MIN_VALUE ? 0 : snapshotLowerBound((int) baseFrom);
+        // Merges the heap and snapshot entries, both already sorted by start
+        while ((i < size && starts[i] < to) || (b < baseCount && snapshotStarts(b) < to)) {
+            int start;
+            int finish;
+            if (b >= baseCount || snapshotStarts(b) >= to || (i < size && starts[i] < to && starts[i] <= snapshotStarts(b))) {
+                start = starts[i];
+                finish = finishes[i++];
+            } else {
+                boolean removed = baseRemoved.contains(snapshotId(b));
+                start = snapshotStarts(b);
+                finish = snapshotFinishes(b++);
+                if (removed) {
+                    continue;
+                }
+            }
+            if (finish > from && finish > start) {
+                if (n == s.length) {
+                    s = Arrays.copyOf(s, n * 2);
+                    f = Arrays.copyOf(f, n * 2);
+                }
+                s[n] = start;
+                f[n++] = finish;
+            }
+        }
+        return new int[][] {Arrays.copyOf(s, n), Arrays.copyOf(f, n)};
+    }
+
+    /** Whether there is anything on the heap that the snapshot does not have yet. */
+    boolean hasChanges() {
+        return size + oddIds.length + baseRemoved.size() > 0;
+    }
+
+    /** Writes every live appointment as a snapshot record, in start order. */
+    void writeTo(ByteBuffer out, int roomId) {
+        int count = size();
+        int[] s = new int[count];
+        int[] f = new int[count];
+        long[] id = new long[count];
+        int n = 0;
+        for (int i = 0; i < baseCount; i++) {
+            if (!baseRemoved.contains(snapshotId(i))) {
+                s[n] = snapshotStarts(i);
+                f[n] = snapshotFinishes(i);
+                id[n++] = snapshotId(i);
+            }
+        }
+        for (int i = 0; i < size; i++, n++) {
+            s[n] = starts[i];
+            f[n] = finishes[i];
+            id[n] = ids[i];
+        }
+        for (int i = 0; i < oddIds.length; i++, n++) {
+            s[n] = oddStarts[i];
+            f[n] = oddFinishes[i];
+            id[n] = oddIds[i];
+        }
+        // Start in the high half, position in the low half: sorts by start, stable
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) s[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        for (long key : order) {
+            int i = (int) key;
+            ScheduleSnapshot.putRecord(out, roomId, s[i], f[i], id[i]);
+        }
+    }
+
+    private int snapshotStarts(int i) {
+        return snapshot.getInt(ScheduleSnapshot.offset(base + i) + ScheduleSnapshot.STARTS);
+    }
+
+    private int snapshotFinishes(int i) {
+        return snapshot.getInt(ScheduleSnapshot.offset(base + i) + ScheduleSnapshot.FINISHES);
+    }
+
+    private long snapshotId(int i) {
+        return snapshot.getLong(ScheduleSnapshot.offset(base + i) + ScheduleSnapshot.ID);
+    }
+
+    private int snapshotLowerBound(int key) {
+        int low = 0;
+        int high = baseCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (snapshotStarts(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] without(int[] values, int index) {
+        int[] rest = new int[values.length - 1];
+        System.arraycopy(values, 0, rest, 0, index);
+        System.arraycopy(values, index + 1, rest, index, rest.length - index);
+        return rest;
+    }
+
+    /** First index whose value is {@code >= key}. */
+    private static int lowerBound(int[] values, int size, int key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First index whose value is {@code > key}. */
+    private static int upperBound(int[] values, int size, int key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Occupancy of one room over consecutive buckets of equal length: the share of each bucket
+ * during which at least one appointment was running, and the most appointments running at
+ * once, per bucket and overall.
+ */
+public class RoomUtilization {
+
+    private final String roomName;
+    private final double[] occupancyPercent;
+    private final int[] peakConcurrent;
+    private final int peak;
+
+    RoomUtilization(String roomName, double[] occupancyPercent, int[] peakConcurrent, int peak) {
+        this.roomName = roomName;
+        this.occupancyPercent = occupancyPercent;
+        this.peakConcurrent = peakConcurrent;
+        this.peak = peak;
+    }
+
+    /**
+     * Sweeps the start and finish minutes of a room in time order, keeping the number of
+     * appointments running, and credits every stretch with at least one to the buckets it
+     * covers. A finish sorts before a start at the same minute, so back-to-back bookings
+     * never count as concurrent.
+     *
+     * @param starts sorted start minutes
+     * @param finishes finish minutes, in the same order as {@code starts}
+     */
+    static RoomUtilization sweep(String roomName, int[] starts, int[] finishes, int from, int bucketMinutes,
+            int buckets) {
+        int[] ends = finishes.clone();
+        Arrays.sort(ends);
+        long to = from + (long) bucketMinutes * buckets;
+
+        long[] occupied = new long[buckets];
+        int[] peaks = new int[buckets];
+        int running = 0;
+        long previous = from;
+        int s = 0;
+        int e = 0;
+        while (e < ends.length) {
+            boolean start = s < starts.length && starts[s] < ends[e];
+            long at = Math.max(from, Math.min(to, start ? starts[s] : ends[e]));
+            if (running > 0 && at > previous) {
+                credit(occupied, peaks, previous, at, running, from, bucketMinutes);
+            }
+            previous = Math.max(previous, at);
+            if (start) {
+                running++;
+                s++;
+            } else {
+                running--;
+                e++;
+            }
+        }
+
+        double[] percent = new double[buckets];
+        int peak = 0;
+        for (int b = 0; b < buckets; b++) {
+            percent[b] = Math.round(occupied[b] * 1000.0 / bucketMinutes) / 10.0;
+            peak = Math.max(peak, peaks[b]);
+        }
+        return new RoomUtilization(roomName, percent, peaks, peak);
+    }
+
+    private static void credit(long[] occupied, int[] peaks, long from, long to, int running, int origin,
+            int bucketMinutes) {
+        int first = (int) ((from - origin) / bucketMinutes);
+        int last = (int) ((to - 1 - origin) / bucketMinutes);
+        for (int b = first; b <= last; b++) {
+            long bucketStart = origin + (long) b * bucketMinutes;
+            long overlap = Math.min(to, bucketStart + bucketMinutes) - Math.max(from, bucketStart);
+            occupied[b] += overlap;
+            peaks[b] = Math.max(peaks[b], running);
+        }
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public double[] getOccupancyPercent() {
+        return occupancyPercent;
+    }
+
+    public int[] getPeakConcurrent() {
+        return peakConcurrent;
+    }
+
+    public int getPeak() {
+        return peak;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.schedule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A memory-mapped file with every room's schedule, so a restart maps it instead of reading the
+ * whole appointment table. The layout is a 40 byte header followed by fixed-width 20 byte
+ * records sorted by room and start minute, all big-endian:
+ *
+ * <pre>
+ * header: magic "HSS1" | version int | record count int | reserved int | highest appointment id long | written at millis long
+ *         | booking log position long
+ * record: room id int  | starts minute int | finishes minute int | appointment id long
+ * </pre>
+ *
+ * The records are only ever read through the mapping, so they stay off the heap. The log
+ * position is the last booking_log entry the records are known to include.
+ */
+public final class ScheduleSnapshot {
+
+    static final int MAGIC = 0x48535331;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 40;
+    static final int RECORD_BYTES = 20;
+
+    static final int ROOM = 0;
+    static final int STARTS = 4;
+    static final int FINISHES = 8;
+    static final int ID = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final long maxAppointmentId;
+    private final long logPosition;
+
+    private ScheduleSnapshot(MappedByteBuffer buffer, int count, long maxAppointmentId, long logPosition) {
+        this.buffer = buffer;
+        this.count = count;
+        this.maxAppointmentId = maxAppointmentId;
+        this.logPosition = logPosition;
+    }
+
+    /** Maps {@code file}, or returns null when it is missing or not a complete snapshot. */
+    public static ScheduleSnapshot open(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            int count = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || length != HEADER_BYTES + (long) count * RECORD_BYTES) {
+                return null;
+            }
+            return new ScheduleSnapshot(buffer, count, buffer.getLong(16), buffer.getLong(32));
+        }
+    }
+
+    /**
+     * Writes the rooms to {@code file} through a temporary file, so a crash mid-write leaves
+     * the previous snapshot in place. Each room is locked while its records are copied.
+     */
+    public static void write(Path file, Map<Integer, RoomSchedule> rooms, long logPosition) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_BYTES);
+                long count = 0;
+                long maxAppointmentId = 0;
+                for (Map.Entry<Integer, RoomSchedule> room : new TreeMap<>(rooms).entrySet()) {
+                    ByteBuffer records;
+                    synchronized (room.getValue()) {
+                        records = ByteBuffer.allocate(room.getValue().size() * RECORD_BYTES);
+                        room.getValue().writeTo(records, room.getKey());
+                    }
+                    records.flip();
+                    for (int at = 0; at < records.limit(); at += RECORD_BYTES) {
+                        maxAppointmentId = Math.max(maxAppointmentId, records.getLong(at + ID));
+                    }
+                    count += records.limit() / RECORD_BYTES;
+                    while (records.hasRemaining()) {
+                        channel.write(records);
+                    }
+                }
+                if (HEADER_BYTES + count * RECORD_BYTES > Integer.MAX_VALUE) {
+                    throw new IOException(count + " appointments do not fit in one mapped snapshot");
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt((int) count).putInt(0)
+                        .putLong(maxAppointmentId).putLong(System.currentTimeMillis())
+                        .putLong(logPosition);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** One schedule per room, reading its records from the mapping. */
+    public Map<Integer, RoomSchedule> rooms() {
+        Map<Integer, RoomSchedule> rooms = new HashMap<>();
+        int from = 0;
+        while (from < count) {
+            int roomId = buffer.getInt(offset(from) + ROOM);
+            int to = from;
+            int maxLength = 0;
+            int[] odd = new int[0];
+            for (; to < count && buffer.getInt(offset(to) + ROOM) == roomId; to++) {
+                int length = buffer.getInt(offset(to) + FINISHES) - buffer.getInt(offset(to) + STARTS);
+                if (length > 0) {
+                    maxLength = Math.max(maxLength, length);
+                } else {
+                    odd = Arrays.copyOf(odd, odd.length + 1);
+                    odd[odd.length - 1] = to - from;
+                }
+            }
+            rooms.put(roomId, new RoomSchedule(buffer, from, to - from, maxLength, odd));
+            from = to;
+        }
+        return rooms;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long maxAppointmentId() {
+        return maxAppointmentId;
+    }
+
+    public long logPosition() {
+        return logPosition;
+    }
+
+    static int offset(int record) {
+        return HEADER_BYTES + record * RECORD_BYTES;
+    }
+
+    static void putRecord(ByteBuffer out, int roomId, int starts, int finishes, long id) {
+        out.putInt(roomId).putInt(starts).putInt(finishes).putLong(id);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.schedule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.RoomRepository;
+
+/**
+ * Room utilization over a period, computed from the in-memory room schedules. Rooms are
+ * independent, so they are split across the common fork/join pool and each one is swept on
+ * its own.
+ */
+@Component
+public class UtilizationReport {
+
+    // Below this many rooms a task sweeps them itself instead of forking
+    private static final int ROOMS_PER_TASK = 4;
+
+    @Autowired
+    BookingSchedule bookingSchedule;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    /** One entry per room, by room name; bucket {@code i} starts at {@code from + i * bucketMinutes}. */
+    public List<RoomUtilization> compute(LocalDateTime from, int bucketMinutes, int buckets) {
+        List<Room> rooms = roomRepository.findAll(Sort.by("roomName"));
+        int fromMinute = Appointment.toEpochMinute(from);
+        return ForkJoinPool.commonPool().invoke(new Sweep(rooms, 0, rooms.size(), fromMinute, bucketMinutes, buckets));
+    }
+
+    private final class Sweep extends RecursiveTask<List<RoomUtilization>> {
+
+        private final List<Room> rooms;
+        private final int lo;
+        private final int hi;
+        private final int fromMinute;
+        private final int bucketMinutes;
+        private final int buckets;
+
+        Sweep(List<Room> rooms, int lo, int hi, int fromMinute, int bucketMinutes, int buckets) {
+            this.rooms = rooms;
+            this.lo = lo;
+            this.hi = hi;
+            this.fromMinute = fromMinute;
+            this.bucketMinutes = bucketMinutes;
+            this.buckets = buckets;
+        }
+
+        @Override
+        protected List<RoomUtilization> compute() {
+            if (hi - lo <= ROOMS_PER_TASK) {
+                List<RoomUtilization> result = new ArrayList<>(hi - lo);
+                int toMinute = fromMinute + bucketMinutes * buckets;
+                for (Room room : rooms.subList(lo, hi)) {
+                    int[][] intervals = bookingSchedule.intervals(room.getId(), fromMinute, toMinute);
+                    result.add(RoomUtilization.sweep(room.getRoomName(), intervals[0], intervals[1], fromMinute,
+                            bucketMinutes, buckets));
+                }
+                return result;
+            }
+            int mid = (lo + hi) >>> 1;
+            Sweep left = new Sweep(rooms, lo, mid, fromMinute, bucketMinutes, buckets);
+            left.fork();
+            List<RoomUtilization> right = new Sweep(rooms, mid, hi, fromMinute, bucketMinutes, buckets).compute();
+            List<RoomUtilization> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections of the shard pinned to the current thread, or of shard 0, which also
+ * holds every table that is not sharded. The pin has to be in place before a transaction
+ * starts, since the connection is taken when it begins.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> PINNED = new ThreadLocal<>();
+
+    static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    static Integer pin(int shard) {
+        Integer previous = PINNED.get();
+        PINNED.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            PINNED.remove();
+        } else {
+            PINNED.set(previous);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = PINNED.get();
+        return shard == null ? 0 : shard;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.sharding;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.ArchivedAppointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRef;
+
+/**
+ * Sends each repository call to the shard that holds its rows, or to all of them.
+ * <p>
+ * Saves go to the shard of the appointment's room, or of the entity's id; lookups and deletes
+ * by id to the shard of the id. Every other call is run on all shards in parallel and the
+ * results are merged: lists are concatenated and sorted by start (appointments) or by id
+ * (keyset pages and id-ordered rows, which are then cut back to the page size), counts are
+ * added up. Rooms, doctors and patients are read from shard 0 and written to every shard,
+ * including the new doctor and patient an appointment is saved with.
+ */
+class ShardRoutingInterceptor implements MethodInterceptor {
+
+    private static final Comparator<Appointment> BY_START = Comparator.comparing(Appointment::getStartsAt,
+            Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final Comparator<ArchivedAppointment> ARCHIVED_BY_START =
+            Comparator.comparingInt(ArchivedAppointment::getStartsMinute);
+
+    private static final Set<String> BY_ID = new HashSet<>(Arrays.asList(
+            "findById", "existsById", "deleteById", "getById", "getReferenceById", "getOne"));
+
+    // Would write every entity to every shard, or fail on the shards without the id
+    private static final Set<String> UNSUPPORTED = new HashSet<>(Arrays.asList(
+            "saveAll", "saveAllAndFlush", "deleteAllById"));
+
+    private final Shards shards;
+    private final Class<?> domainType;
+
+    ShardRoutingInterceptor(Shards shards, Class<?> domainType) {
+        this.shards = shards;
+        this.domainType = domainType;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ShardRoutingDataSource.isPinned() || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // The transaction already holds a connection, so the call could not be routed
+            throw new IllegalStateException(invocation.getMethod() + " is sharded and cannot run inside a transaction");
+        }
+        String table = tableOf(domainType);
+        return table != null ? invokeReplicated(invocation, table) : invokeSharded(invocation);
+    }
+
+    private Object invokeReplicated(MethodInvocation invocation, String table) throws Throwable {
+        String name = invocation.getMethod().getName();
+        if (name.startsWith("delete")) {
+            shards.onEach(shard -> ((ProxyMethodInvocation) invocation).invocableClone()::proceed);
+            return null;
+        }
+        Object result = shards.on(0, invocation::proceed);
+        if (name.startsWith("save") && domainType.isInstance(result)) {
+            shards.copyRow(table, idOf(result), 0);
+        }
+        return result;
+    }
+
+    private Object invokeSharded(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (UNSUPPORTED.contains(method.getName()) || Slice.class.isAssignableFrom(method.getReturnType())) {
+            throw new UnsupportedOperationException(method + " is not supported on sharded repositories");
+        }
+        Integer shard = shardOf(method, invocation.getArguments());
+        if (shard != null) {
+            Object arg = invocation.getArguments()[0];
+            if (!method.getName().startsWith("save") || !(arg instanceof Appointment)) {
+                return shards.on(shard, invocation::proceed);
+            }
+            // A patient or doctor sent without an id is created on the room's shard
+            Appointment appointment = (Appointment) arg;
+            boolean newPatient = appointment.getPatient() != null && appointment.getPatient().getId() == 0;
+            boolean newDoctor = appointment.getDoctor() != null && appointment.getDoctor().getId() == 0;
+            Object result = shards.on(shard, invocation::proceed);
+            if (newPatient) {
+                shards.copyRow(tableOf(Patient.class), appointment.getPatient().getId(), shard);
+            }
+            if (newDoctor) {
+                shards.copyRow(tableOf(Doctor.class), appointment.getDoctor().getId(), shard);
+            }
+            return result;
+        }
+        List<Object> results = shards.onEach(s -> ((ProxyMethodInvocation) invocation).invocableClone()::proceed);
+        return merge(method, invocation.getArguments(), results);
+    }
+
+    private Integer shardOf(Method method, Object[] args) {
+        String name = method.getName();
+        if (args.length != 1) {
+            return null;
+        }
+        Object arg = args[0];
+        if (name.startsWith("save") || "delete".equals(name)) {
+            if (arg instanceof Appointment && ((Appointment) arg).getRoom() != null) {
+                return shards.shardOfRoom(((Appointment) arg).getRoom().getId());
+            }
+            return shards.shardOfId(idOf(arg));
+        }
+        if (BY_ID.contains(name) && arg instanceof Long) {
+            return shards.shardOfId((Long) arg);
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object merge(Method method, Object[] args, List<Object> results) {
+        Class<?> type = method.getReturnType();
+        if (List.class.isAssignableFrom(type) || type == Iterable.class) {
+            List merged = new ArrayList<>();
+            for (Object result : results) {
+                ((Iterable<?>) result).forEach(merged::add);
+            }
+            if (method.getName().contains("OrderById")) {
+                merged.sort(Comparator.comparingLong(ShardRoutingInterceptor::idOf));
+            } else if (!merged.isEmpty() && merged.get(0) instanceof Appointment) {
+                merged.sort(BY_START);
+            } else if (!merged.isEmpty() && merged.get(0) instanceof ArchivedAppointment) {
+                merged.sort(ARCHIVED_BY_START);
+            }
+            for (Object arg : args) {
+                if (arg instanceof Pageable && ((Pageable) arg).isPaged() && merged.size() > ((Pageable) arg).getPageSize()) {
+                    return new ArrayList<>(merged.subList(0, ((Pageable) arg).getPageSize()));
+                }
+            }
+            return merged;
+        }
+        if (type == long.class || type == Long.class) {
+            return results.stream().mapToLong(r -> (Long) r).sum();
+        }
+        if (type == int.class || type == Integer.class) {
+            return results.stream().mapToInt(r -> (Integer) r).sum();
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        if (type == Optional.class) {
+            return results.stream().map(r -> (Optional<?>) r).filter(Optional::isPresent).findFirst()
+                    .orElse(Optional.empty());
+        }
+        return results.stream().filter(r -> r != null).findFirst().orElse(null);
+    }
+
+    private static String tableOf(Class<?> type) {
+        if (type == Room.class) {
+            return "room";
+        }
+        if (type == Doctor.class) {
+            return "doctors";
+        }
+        if (type == Patient.class) {
+            return "patient";
+        }
+        return null;
+    }
+
+    private static long idOf(Object entity) {
+        if (entity instanceof Object[]) {
+            // Projection rows lead with the id
+            return (Long) ((Object[]) entity)[0];
+        }
+        if (entity instanceof Appointment) {
+            return ((Appointment) entity).getId();
+        }
+        if (entity instanceof AppointmentRef) {
+            return ((AppointmentRef) entity).getId();
+        }
+        if (entity instanceof ArchivedAppointment) {
+            return ((ArchivedAppointment) entity).getId();
+        }
+        if (entity instanceof Doctor) {
+            return ((Doctor) entity).getId();
+        }
+        if (entity instanceof Patient) {
+            return ((Patient) entity).getId();
+        }
+        if (entity instanceof Room) {
+            return ((Room) entity).getId();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.ArchivedAppointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * With app.sharding.enabled, appointments are spread over the databases listed under
+ * app.sharding.shards[n]; shard 0 also keeps every table that is not sharded. The datasource
+ * the application sees routes by {@link Shards}, and the appointment, archive, doctor, patient
+ * and room repositories are wrapped in a {@link ShardRoutingInterceptor}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    private static final List<Class<?>> SHARDED = Arrays.asList(
+            Appointment.class, ArchivedAppointment.class, Doctor.class, Patient.class, Room.class);
+
+    @Bean
+    @ConfigurationProperties("app.sharding")
+    public ShardingProperties shardingProperties() {
+        return new ShardingProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public Shards shards(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled needs at least one app.sharding.shards[n].url");
+        }
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(shard.getUrl()).username(shard.getUsername()).password(shard.getPassword()).build();
+            dataSource.setPoolName("shard-" + i);
+            dataSources.add(dataSource);
+        }
+        return new Shards(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(Shards shards) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            targets.put(shard, shards.dataSource(shard));
+        }
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.dataSource(0));
+        return routing;
+    }
+
+    /** Runs the migrations on every shard, not only the one the routing datasource defaults to. */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(Shards shards) {
+        return flyway -> {
+            for (int shard = 0; shard < shards.count(); shard++) {
+                Flyway.configure(flyway.getConfiguration().getClassLoader())
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shards.dataSource(shard))
+                        .load()
+                        .migrate();
+            }
+            shards.prepare();
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor shardRoutingPostProcessor(ObjectProvider<Shards> shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                if (SHARDED.contains(repositoryInformation.getDomainType())) {
+                                    // First, so the shard is chosen before a transaction takes a connection
+                                    proxyFactory.addAdvice(0, new ShardRoutingInterceptor(shards.getObject(),
+                                            repositoryInformation.getDomainType()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+}
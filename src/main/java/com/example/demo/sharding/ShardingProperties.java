@@ -0,0 +1,49 @@
+package com.example.demo.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** app.sharding.shards[n].url / username / password, shard 0 first. */
+public class ShardingProperties {
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
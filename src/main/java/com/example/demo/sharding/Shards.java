@@ -0,0 +1,210 @@
+package com.example.demo.sharding;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The appointment shards. An appointment lives on the shard its room hashes to, so every
+ * appointment of a room, and every conflict between them, is on one database.
+ * <p>
+ * Each shard draws ids from its own range, {@code [shard << ID_BITS, (shard + 1) << ID_BITS)},
+ * so the id of an appointment tells which shard holds it. Rooms, doctors and patients are
+ * copied to every shard with the same id, for the foreign keys, so an appointment can refer to
+ * any of them wherever its room puts it.
+ */
+public class Shards implements Closeable {
+
+    public static final int ID_BITS = 40;
+
+    /** Tables copied to every shard. */
+    private static final List<String> REPLICATED = Arrays.asList("room", "doctors", "patient");
+
+    private final List<DataSource> dataSources;
+    private final ExecutorService executor;
+
+    public Shards(List<DataSource> dataSources) {
+        this.dataSources = new ArrayList<>(dataSources);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int count() {
+        return dataSources.size();
+    }
+
+    public DataSource dataSource(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public int shardOfRoom(int roomId) {
+        // Fibonacci hashing, so consecutive room ids spread over the shards
+        return (int) ((Integer.toUnsignedLong(roomId * 0x9E3779B9) * count()) >>> 32);
+    }
+
+    /** The shard whose id range holds {@code id}; ids outside every range belong to shard 0. */
+    public int shardOfId(long id) {
+        long shard = id >>> ID_BITS;
+        return shard < count() ? (int) shard : 0;
+    }
+
+    public static long firstId(int shard) {
+        return shard == 0 ? 1 : (long) shard << ID_BITS;
+    }
+
+    /** Runs {@code work} with the connections of one shard. */
+    public <T> T on(int shard, ShardWork<T> work) throws Throwable {
+        Integer previous = ShardRoutingDataSource.pin(shard);
+        try {
+            return work.run();
+        } finally {
+            ShardRoutingDataSource.restore(previous);
+        }
+    }
+
+    /** Runs the work of every shard in parallel; the results are in shard order. */
+    public <T> List<T> onEach(IntFunction<ShardWork<T>> work) throws Throwable {
+        List<Future<T>> futures = new ArrayList<>(count());
+        for (int shard = 0; shard < count(); shard++) {
+            int s = shard;
+            ShardWork<T> shardWork = work.apply(s);
+            futures.add(executor.submit(() -> {
+                try {
+                    return on(s, shardWork);
+                } catch (Throwable t) {
+                    throw new ShardFailure(t);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(count());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw e.getCause().getCause();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Moves each shard's id sequence into its range and copies the rooms, doctors and patients
+     * each shard is missing from the others. Runs after the migrations, before anything is
+     * booked.
+     */
+    void prepare() {
+        for (int shard = 1; shard < count(); shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource(shard));
+            long first = firstId(shard);
+            String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            if ("MySQL".equals(product)) {
+                // Hibernate emulates the sequence with a one-row table there
+                jdbc.update("update hibernate_sequence set next_val = ? where next_val < ?", first, first);
+            } else {
+                Long next = jdbc.queryForObject("select next value for hibernate_sequence", Long.class);
+                if (next != null && next < first) {
+                    jdbc.execute("alter sequence hibernate_sequence restart with " + first);
+                }
+            }
+        }
+
+        for (String table : REPLICATED) {
+            List<JdbcTemplate> jdbcs = new ArrayList<>(count());
+            List<Set<Long>> present = new ArrayList<>(count());
+            for (int shard = 0; shard < count(); shard++) {
+                jdbcs.add(new JdbcTemplate(dataSource(shard)));
+                present.add(new HashSet<>(jdbcs.get(shard).queryForList("select id from " + table, Long.class)));
+            }
+            for (int from = 0; from < count(); from++) {
+                for (Map<String, Object> row : jdbcs.get(from).queryForList("select * from " + table)) {
+                    long id = ((Number) row.get("id")).longValue();
+                    for (int to = 0; to < count(); to++) {
+                        if (present.get(to).add(id)) {
+                            insert(jdbcs.get(to), table, row);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Copies a row of a table kept on every shard from one shard to all the others. */
+    void copyRow(String table, long id, int from) {
+        Map<String, Object> row = new JdbcTemplate(dataSource(from))
+                .queryForMap("select * from " + table + " where id = ?", id);
+        for (int shard = 0; shard < count(); shard++) {
+            if (shard != from) {
+                JdbcTemplate jdbc = new JdbcTemplate(dataSource(shard));
+                if (update(jdbc, table, row) == 0) {
+                    insert(jdbc, table, row);
+                }
+            }
+        }
+    }
+
+    private static int update(JdbcTemplate jdbc, String table, Map<String, Object> row) {
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+            if (!"id".equalsIgnoreCase(column.getKey())) {
+                columns.add(column.getKey() + " = ?");
+                values.add(column.getValue());
+            }
+        }
+        values.add(row.get("id"));
+        return jdbc.update("update " + table + " set " + String.join(", ", columns) + " where id = ?",
+                values.toArray());
+    }
+
+    private static void insert(JdbcTemplate jdbc, String table, Map<String, Object> row) {
+        String marks = String.join(", ", Collections.nCopies(row.size(), "?"));
+        jdbc.update("insert into " + table + " (" + String.join(", ", row.keySet()) + ") values (" + marks + ")",
+                row.values().toArray());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (Exception e) {
+                    // Shutting down anyway
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardWork<T> {
+        T run() throws Throwable;
+    }
+
+    private static final class ShardFailure extends Exception {
+
+        ShardFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.demo.stats;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.AppointmentStat;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsCleared;
+import com.example.demo.repositories.AppointmentStatRepository;
+
+/**
+ * Appointment counts per doctor and week, room and day, and patient and month. Every booking
+ * and cancellation adjusts three rows of appointment_stats; a subject's counts are read from
+ * there once and then kept in memory alongside, so reports never group the appointment table.
+ *
+ * Bookings publish their events under the room's lock, so the listeners only queue the
+ * changes; a single thread writes them afterwards, in order. Each change gets a sequence
+ * number, and a read waits only for the changes queued before it, writing them itself if the
+ * thread has not got to them yet. Other instances write the same rows, so a subject's counts
+ * are read again from the table once they are older than app.stats.ttl-ms.
+ */
+@Component
+public class AppointmentStats {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentStats.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    AppointmentStatRepository appointmentStatRepository;
+
+    @Value("${app.stats.max-subjects:10000}")
+    int maxSubjects;
+
+    @Value("${app.stats.ttl-ms:10000}")
+    long ttlMs;
+
+    private final ConcurrentMap<Subject, Counts> subjects = new ConcurrentHashMap<>();
+
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+
+    // Numbered under the queue's lock, so the queue is in sequence order
+    private long queued;
+
+    // Sequence of the last change written, or dropped by a clear
+    private volatile long written;
+
+    // Held while queued changes are written, so they reach the table in the order they came
+    private final ReentrantLock writing = new ReentrantLock();
+
+    // A subject is loaded and changed under its stripe, so a first read either sees a row before
+    // a change and gets it applied, or after it and is not applied twice
+    private final Object[] locks = new Object[STRIPES];
+
+    private final ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Replaced in tests to hold the writes back
+    Executor writer = writerThread;
+
+    public AppointmentStats() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /** Counts by period start, oldest first; a copy. */
+    public NavigableMap<LocalDate, Integer> counts(String dimension, long subjectId) {
+        long upTo;
+        synchronized (pending) {
+            upTo = queued;
+        }
+        if (written < upTo) {
+            write(upTo);
+        }
+        Subject subject = new Subject(dimension, subjectId);
+        Counts counts = subjects.get(subject);
+        if (counts == null || counts.isOlderThan(ttlMs)) {
+            synchronized (lockOf(subject)) {
+                counts = subjects.get(subject);
+                if (counts == null || counts.isOlderThan(ttlMs)) {
+                    if (counts == null && subjects.size() >= maxSubjects) {
+                        evictOne();
+                    }
+                    counts = load(subject);
+                    subjects.put(subject, counts);
+                }
+            }
+        }
+        synchronized (counts) {
+            return new TreeMap<>(counts.periods);
+        }
+    }
+
+    @EventListener
+    public void onBooked(AppointmentBooked event) {
+        apply(event.getAppointment(), 1);
+    }
+
+    @EventListener
+    public void onCancelled(AppointmentCancelled event) {
+        apply(event.getAppointment(), -1);
+    }
+
+    @EventListener
+    public void onCleared(AppointmentsCleared event) {
+        writing.lock();
+        try {
+            // Changes queued before the clear are of appointments that are gone
+            synchronized (pending) {
+                pending.clear();
+                written = queued;
+            }
+            appointmentStatRepository.deleteAllInBatch();
+            subjects.clear();
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    public static LocalDate weekOf(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public static LocalDate monthOf(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private void apply(Appointment appointment, int delta) {
+        if (appointment.getStartsAt() == null) {
+            return;
+        }
+        LocalDate day = appointment.getStartsAt().toLocalDate();
+        synchronized (pending) {
+            if (appointment.getDoctor() != null) {
+                queue(AppointmentStat.DOCTOR_WEEK, appointment.getDoctor().getId(), weekOf(day), delta);
+            }
+            if (appointment.getRoom() != null) {
+                queue(AppointmentStat.ROOM_DAY, appointment.getRoom().getId(), day, delta);
+            }
+            if (appointment.getPatient() != null) {
+                queue(AppointmentStat.PATIENT_MONTH, appointment.getPatient().getId(), monthOf(day), delta);
+            }
+        }
+        writer.execute(() -> write(Long.MAX_VALUE));
+    }
+
+    private void queue(String dimension, long subjectId, LocalDate period, int delta) {
+        pending.add(new Change(++queued, dimension, subjectId, period, delta));
+    }
+
+    /** Writes the queued changes up to the given sequence, in order. */
+    private void write(long upTo) {
+        writing.lock();
+        try {
+            while (written < upTo) {
+                Change change = pending.poll();
+                if (change == null) {
+                    return;
+                }
+                try {
+                    add(change);
+                } catch (RuntimeException e) {
+                    log.warn("Could not count {} {} {} {}: {}", change.dimension, change.subjectId, change.period,
+                            change.delta, e.toString());
+                }
+                written = change.sequence;
+            }
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    private void add(Change change) {
+        Subject subject = new Subject(change.dimension, change.subjectId);
+        synchronized (lockOf(subject)) {
+            addRow(change.dimension, change.subjectId, change.period, change.delta);
+            Counts counts = subjects.get(subject);
+            if (counts != null) {
+                synchronized (counts) {
+                    counts.periods.merge(change.period, change.delta, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private void addRow(String dimension, long subjectId, LocalDate period, int delta) {
+        if (appointmentStatRepository.add(dimension, subjectId, period, delta) > 0 || delta < 0) {
+            return;
+        }
+        try {
+            appointmentStatRepository.save(new AppointmentStat(dimension, subjectId, period, delta));
+        } catch (DataIntegrityViolationException e) {
+            // Inserted meanwhile by another instance
+            appointmentStatRepository.add(dimension, subjectId, period, delta);
+        }
+    }
+
+    /** Any one subject; it is read again from the table when next asked for. */
+    private void evictOne() {
+        Iterator<Subject> it = subjects.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private Object lockOf(Subject subject) {
+        return locks[subject.hashCode() & (STRIPES - 1)];
+    }
+
+    @PreDestroy
+    void close() {
+        writerThread.shutdown();
+        write(Long.MAX_VALUE);
+    }
+
+    private Counts load(Subject subject) {
+        Counts counts = new Counts();
+        for (AppointmentStat stat : appointmentStatRepository
+                .findByDimensionAndSubjectIdOrderByPeriodStart(subject.dimension, subject.subjectId)) {
+            counts.periods.put(stat.getPeriodStart(), stat.getAppointments());
+        }
+        return counts;
+    }
+
+    /** A subject's counts as read from the table, plus the changes written here since. */
+    private static final class Counts {
+
+        private final NavigableMap<LocalDate, Integer> periods = new TreeMap<>();
+        private final long loadedAt = System.nanoTime();
+
+        boolean isOlderThan(long ttlMs) {
+            return System.nanoTime() - loadedAt >= TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        }
+    }
+
+    private static final class Subject {
+
+        private final String dimension;
+        private final long subjectId;
+
+        Subject(String dimension, long subjectId) {
+            this.dimension = dimension;
+            this.subjectId = subjectId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Subject)) {
+                return false;
+            }
+            Subject other = (Subject) o;
+            return subjectId == other.subjectId && dimension.equals(other.dimension);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, subjectId);
+        }
+    }
+
+    private static final class Change {
+
+        private final long sequence;
+        private final String dimension;
+        private final long subjectId;
+        private final LocalDate period;
+        private final int delta;
+
+        Change(long sequence, String dimension, long subjectId, LocalDate period, int delta) {
+            this.sequence = sequence;
+            this.dimension = dimension;
+            this.subjectId = subjectId;
+            this.period = period;
+            this.delta = delta;
+        }
+    }
+}
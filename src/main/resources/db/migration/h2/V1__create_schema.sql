@@ -0,0 +1,34 @@
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table doctors (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+);
+
+create table patient (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+);
+
+create table room (
+    room_name varchar(255) not null,
+    primary key (room_name)
+);
+
+create table appointment (
+    id bigint not null,
+    finishes_at timestamp,
+    starts_at timestamp,
+    doctor_id bigint,
+    patient_id bigint,
+    room_id varchar(255),
+    primary key (id)
+);
@@ -0,0 +1,35 @@
+-- Databases first created by ddl-auto=update already have Hibernate's FK<hash> foreign keys on
+-- these columns; drop them so the named ones below are the only copies
+execute immediate 'alter table appointment drop constraint if exists ' || coalesce((
+    select quote_ident(k.constraint_name)
+    from information_schema.key_column_usage k
+    join information_schema.referential_constraints rc
+        on rc.constraint_schema = k.constraint_schema and rc.constraint_name = k.constraint_name
+    where k.table_name = 'APPOINTMENT' and k.column_name = 'PATIENT_ID'
+    fetch first row only), 'fk_appointment_patient');
+execute immediate 'alter table appointment drop constraint if exists ' || coalesce((
+    select quote_ident(k.constraint_name)
+    from information_schema.key_column_usage k
+    join information_schema.referential_constraints rc
+        on rc.constraint_schema = k.constraint_schema and rc.constraint_name = k.constraint_name
+    where k.table_name = 'APPOINTMENT' and k.column_name = 'DOCTOR_ID'
+    fetch first row only), 'fk_appointment_doctor');
+execute immediate 'alter table appointment drop constraint if exists ' || coalesce((
+    select quote_ident(k.constraint_name)
+    from information_schema.key_column_usage k
+    join information_schema.referential_constraints rc
+        on rc.constraint_schema = k.constraint_schema and rc.constraint_name = k.constraint_name
+    where k.table_name = 'APPOINTMENT' and k.column_name = 'ROOM_ID'
+    fetch first row only), 'fk_appointment_room');
+
+-- Conflict checks scan one room's appointments by time; agendas do the same per doctor and patient
+create index ix_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+create index ix_appointment_doctor_time on appointment (doctor_id, starts_at);
+create index ix_appointment_patient_time on appointment (patient_id, starts_at);
+
+create index ix_doctors_email on doctors (email);
+create index ix_patient_email on patient (email);
+
+alter table appointment add constraint fk_appointment_patient foreign key (patient_id) references patient (id);
+alter table appointment add constraint fk_appointment_doctor foreign key (doctor_id) references doctors (id);
+alter table appointment add constraint fk_appointment_room foreign key (room_id) references room (room_name);
@@ -0,0 +1,27 @@
+-- Rooms get a 4-byte id; appointment.room_id switches from the room name to that id
+-- Drop every foreign key into room before its key changes: fk_appointment_room from V2 and, on
+-- databases first created by ddl-auto, Hibernate's own FK<hash> from appointment.room_id
+alter table appointment drop constraint if exists fk_appointment_room;
+execute immediate 'alter table appointment drop constraint if exists ' || coalesce((
+    select quote_ident(rc.constraint_name)
+    from information_schema.referential_constraints rc
+    join information_schema.table_constraints fk
+        on fk.constraint_schema = rc.constraint_schema and fk.constraint_name = rc.constraint_name
+    join information_schema.table_constraints pk
+        on pk.constraint_schema = rc.unique_constraint_schema and pk.constraint_name = rc.unique_constraint_name
+    where fk.table_name = 'APPOINTMENT' and pk.table_name = 'ROOM'
+    fetch first row only), 'fk_appointment_room');
+drop index ix_appointment_room_time;
+
+alter table room drop primary key;
+alter table room add column id integer generated by default as identity before room_name;
+alter table room add primary key (id);
+alter table room add constraint uk_room_room_name unique (room_name);
+
+alter table appointment alter column room_id rename to room_name;
+alter table appointment add column room_id integer;
+update appointment a set room_id = (select r.id from room r where r.room_name = a.room_name);
+alter table appointment drop column room_name;
+
+create index ix_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+alter table appointment add constraint fk_appointment_room foreign key (room_id) references room (id);
@@ -0,0 +1,10 @@
+-- Mirrors starts_at/finishes_at as int minutes since 1970-01-01T00:00, the unit conflict checks use
+alter table appointment add column starts_minute integer;
+alter table appointment add column finishes_minute integer;
+update appointment set starts_minute = coalesce(datediff('MINUTE', timestamp '1970-01-01 00:00:00', starts_at), 0),
+                       finishes_minute = coalesce(datediff('MINUTE', timestamp '1970-01-01 00:00:00', finishes_at), 0);
+alter table appointment alter column starts_minute set not null;
+alter table appointment alter column finishes_minute set not null;
+
+create index ix_appointment_room_minute on appointment (room_id, starts_minute, finishes_minute);
+drop index ix_appointment_room_time;
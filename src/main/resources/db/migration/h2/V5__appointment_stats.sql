@@ -0,0 +1,24 @@
+-- Running appointment counts per doctor and week (Monday), room and day, patient and month,
+-- kept up to date by the booking and cancel endpoints; this is the only GROUP BY over appointment
+create table appointment_stats (
+    dimension varchar(16) not null,
+    subject_id bigint not null,
+    period_start date not null,
+    appointments integer not null,
+    primary key (dimension, subject_id, period_start)
+);
+
+insert into appointment_stats (dimension, subject_id, period_start, appointments)
+select 'doctor-week', doctor_id, dateadd('DAY', 1 - iso_day_of_week(starts_at), cast(starts_at as date)), count(*)
+from appointment where doctor_id is not null and starts_at is not null
+group by doctor_id, dateadd('DAY', 1 - iso_day_of_week(starts_at), cast(starts_at as date));
+
+insert into appointment_stats (dimension, subject_id, period_start, appointments)
+select 'room-day', room_id, cast(starts_at as date), count(*)
+from appointment where room_id is not null and starts_at is not null
+group by room_id, cast(starts_at as date);
+
+insert into appointment_stats (dimension, subject_id, period_start, appointments)
+select 'patient-month', patient_id, dateadd('DAY', 1 - day_of_month(starts_at), cast(starts_at as date)), count(*)
+from appointment where patient_id is not null and starts_at is not null
+group by patient_id, dateadd('DAY', 1 - day_of_month(starts_at), cast(starts_at as date));
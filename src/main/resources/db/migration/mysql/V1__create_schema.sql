@@ -0,0 +1,38 @@
+create table hibernate_sequence (
+    next_val bigint
+) engine=InnoDB;
+
+insert into hibernate_sequence values (1);
+
+create table doctors (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table patient (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table room (
+    room_name varchar(255) not null,
+    primary key (room_name)
+) engine=InnoDB;
+
+create table appointment (
+    id bigint not null,
+    finishes_at datetime,
+    starts_at datetime,
+    doctor_id bigint,
+    patient_id bigint,
+    room_id varchar(255),
+    primary key (id)
+) engine=InnoDB;
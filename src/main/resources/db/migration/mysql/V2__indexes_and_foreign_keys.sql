@@ -0,0 +1,29 @@
+-- Databases first created by ddl-auto=update already have Hibernate's FK<hash> foreign keys on
+-- appointment, each with an index of the same name; drop both so the named ones below are the
+-- only copies. V1 creates no foreign keys, so any found here are Hibernate's
+set @drop_legacy_fks = (
+    select concat('alter table appointment ', group_concat(
+        concat('drop foreign key `', rc.constraint_name, '`',
+               if(ix.index_name is null, '', concat(', drop index `', ix.index_name, '`')))
+        separator ', '))
+    from information_schema.referential_constraints rc
+    left join (select distinct index_name from information_schema.statistics
+               where table_schema = database() and table_name = 'appointment') ix
+        on ix.index_name = rc.constraint_name
+    where rc.constraint_schema = database() and rc.table_name = 'appointment');
+set @drop_legacy_fks = coalesce(@drop_legacy_fks, 'do 0');
+prepare drop_legacy_fks from @drop_legacy_fks;
+execute drop_legacy_fks;
+deallocate prepare drop_legacy_fks;
+
+-- Conflict checks scan one room's appointments by time; agendas do the same per doctor and patient
+create index ix_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+create index ix_appointment_doctor_time on appointment (doctor_id, starts_at);
+create index ix_appointment_patient_time on appointment (patient_id, starts_at);
+
+create index ix_doctors_email on doctors (email);
+create index ix_patient_email on patient (email);
+
+alter table appointment add constraint fk_appointment_patient foreign key (patient_id) references patient (id);
+alter table appointment add constraint fk_appointment_doctor foreign key (doctor_id) references doctors (id);
+alter table appointment add constraint fk_appointment_room foreign key (room_id) references room (room_name);
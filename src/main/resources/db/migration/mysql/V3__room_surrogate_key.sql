@@ -0,0 +1,24 @@
+-- Rooms get a 4-byte id; appointment.room_id switches from the room name to that id
+-- Drop every foreign key into room before its key changes: fk_appointment_room from V2 and, on
+-- databases first created by ddl-auto, Hibernate's own FK<hash> from appointment.room_id
+set @drop_room_fks = (
+    select concat('alter table appointment ',
+                  group_concat(concat('drop foreign key `', constraint_name, '`') separator ', '))
+    from information_schema.referential_constraints
+    where constraint_schema = database() and table_name = 'appointment' and referenced_table_name = 'room');
+set @drop_room_fks = coalesce(@drop_room_fks, 'do 0');
+prepare drop_room_fks from @drop_room_fks;
+execute drop_room_fks;
+deallocate prepare drop_room_fks;
+drop index ix_appointment_room_time on appointment;
+
+alter table room drop primary key, add column id int not null auto_increment primary key first;
+alter table room add constraint uk_room_room_name unique (room_name);
+
+alter table appointment change room_id room_name varchar(255);
+alter table appointment add column room_id int after patient_id;
+update appointment a join room r on r.room_name = a.room_name set a.room_id = r.id;
+alter table appointment drop column room_name;
+
+create index ix_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+alter table appointment add constraint fk_appointment_room foreign key (room_id) references room (id);
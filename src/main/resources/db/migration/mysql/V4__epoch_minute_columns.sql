@@ -0,0 +1,11 @@
+-- Mirrors starts_at/finishes_at as int minutes since 1970-01-01T00:00, the unit conflict checks use
+alter table appointment add column starts_minute int after finishes_at,
+                        add column finishes_minute int after starts_minute;
+update appointment set starts_minute = coalesce(timestampdiff(minute, '1970-01-01 00:00:00', starts_at), 0),
+                       finishes_minute = coalesce(timestampdiff(minute, '1970-01-01 00:00:00', finishes_at), 0);
+alter table appointment modify starts_minute int not null,
+                        modify finishes_minute int not null;
+
+-- Created before the old index goes, so fk_appointment_room always has an index to use
+create index ix_appointment_room_minute on appointment (room_id, starts_minute, finishes_minute);
+drop index ix_appointment_room_time on appointment;
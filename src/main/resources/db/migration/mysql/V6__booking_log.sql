@@ -0,0 +1,20 @@
+-- Append-only history of bookings, cancellations and clears in the order they happened;
+-- replayed on top of the schedule snapshot at start-up
+create table booking_log (
+    id bigint not null auto_increment primary key,
+    type varchar(16) not null,
+    appointment_id bigint,
+    room_id int,
+    doctor_id bigint,
+    patient_id bigint,
+    starts_minute int not null,
+    finishes_minute int not null,
+    recorded_at datetime not null
+);
+
+create index ix_booking_log_appointment on booking_log (appointment_id);
+
+-- The history starts with what is booked today
+insert into booking_log (type, appointment_id, room_id, doctor_id, patient_id, starts_minute, finishes_minute, recorded_at)
+select 'booked', id, room_id, doctor_id, patient_id, starts_minute, finishes_minute, current_timestamp
+from appointment order by id;
@@ -0,0 +1,23 @@
+-- Appointments that finished before the archive horizon, moved out of appointment by the
+-- archiver; same columns, ids kept
+create table appointment_archive (
+    id bigint not null,
+    patient_id bigint,
+    doctor_id bigint,
+    room_id int,
+    starts_at datetime,
+    finishes_at datetime,
+    starts_minute int not null,
+    finishes_minute int not null,
+    archived_at datetime not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index ix_appointment_archive_starts on appointment_archive (starts_minute);
+
+alter table appointment_archive add constraint fk_appointment_archive_patient foreign key (patient_id) references patient (id),
+                                add constraint fk_appointment_archive_doctor foreign key (doctor_id) references doctors (id),
+                                add constraint fk_appointment_archive_room foreign key (room_id) references room (id);
+
+-- The archiver picks its chunks by finish time
+create index ix_appointment_finishes on appointment (finishes_minute);
@@ -0,0 +1,157 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.demo.filters.AdaptiveLimiter;
+import com.example.demo.filters.AdmissionControlFilter;
+
+class AdmissionControlFilterTest {
+
+    @Test
+    void shouldRejectOverLimitRequestsWithRetryAfter() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 1, 10, 10);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        // While one booking is in flight, a second booking is shed
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                try {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(new MockHttpServletRequest("POST", "/api/appointment"), response, new MockFilterChain());
+                    nested.set(response);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/appointment"), first, chain);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(nested.get().getStatus()).isEqualTo(503);
+        assertThat(nested.get().getHeader("Retry-After")).isEqualTo("1");
+        assertThat(filter.getHeavyLimiter().getInflight()).isZero();
+    }
+
+    @Test
+    void shouldKeepLookupsOutOfTheHeavyBudget() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 1, 10, 10);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                try {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/doctors/1"), response, new MockFilterChain());
+                    nested.set(response);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/appointments"), new MockHttpServletResponse(), chain);
+
+        assertThat(nested.get().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldCountTheUtilizationReportAgainstTheHeavyBudget() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 1, 10, 10);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        // While a report sweeps the rooms, a whole-table read is shed
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                try {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/appointments"), response, new MockFilterChain());
+                    nested.set(response);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/rooms/utilization"), new MockHttpServletResponse(), chain);
+
+        assertThat(nested.get().getStatus()).isEqualTo(503);
+        assertThat(filter.getHeavyLimiter().getInflight()).isZero();
+    }
+
+    @Test
+    void shouldNotCountChangeFeedSubscribersAgainstTheLimits() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 1, 1, 1);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        // A subscriber holding its connection open leaves room for a lookup
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                try {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(new MockHttpServletRequest("GET", "/api/doctors/1"), response, new MockFilterChain());
+                    nested.set(response);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/appointments/changes"), new MockHttpServletResponse(), chain);
+
+        assertThat(nested.get().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldShrinkLimitWhenLatencyRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 20, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            saturateAndRelease(limiter, 1_000_000L);
+        }
+        int steady = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            saturateAndRelease(limiter, 20_000_000L);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(steady);
+    }
+
+    @Test
+    void shouldGrowLimitWhileLatencyIsStable() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 10, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            saturateAndRelease(limiter, 1_000_000L);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    private static void saturateAndRelease(AdaptiveLimiter limiter, long latencyNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+
+import com.example.demo.repositories.*;
+import com.example.demo.entities.*;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.persistence.AppointmentArchiver;
+import com.example.demo.schedule.BookingSchedule;
+
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({AppointmentArchiver.class, BookingSchedule.class})
+@RecordApplicationEvents
+class AppointmentArchiveJpaUnitTest {
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    AppointmentArchiver archiver;
+
+    @Autowired
+    BookingSchedule bookingSchedule;
+
+    @Autowired
+    AppointmentRepository repo;
+
+    @Autowired
+    ArchivedAppointmentRepository repoArchive;
+
+    @Autowired
+    BookingLogRepository repoLog;
+
+    @BeforeEach
+    void setUp() {
+        // Loaded again from the rows of the test that reads it
+        bookingSchedule.clear();
+    }
+
+    @Test
+    void should_move_finished_appointments_to_the_archive_in_chunks_and_out_of_the_schedule(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        Appointment first = appointment(patient, doctor, room, LocalDateTime.of(2021, 3, 1, 9, 0));
+        Appointment second = appointment(patient, doctor, room, LocalDateTime.of(2021, 3, 2, 9, 0));
+        Appointment third = appointment(patient, doctor, room, LocalDateTime.of(2021, 3, 3, 9, 0));
+        Appointment recent = appointment(patient, doctor, room, LocalDateTime.of(2023, 5, 2, 9, 0));
+        entityManager.flush();
+        assertThat(bookingSchedule.forRoom(room.getId()).contains(first.getId(), first.getStartsMinute())).isTrue();
+
+        ReflectionTestUtils.setField(archiver, "chunkSize", 2);
+        assertThat(archiver.archive(LocalDateTime.of(2022, 1, 1, 0, 0))).isEqualTo(3);
+
+        assertThat(repo.findAll()).extracting(Appointment::getId).containsExactly(recent.getId());
+        assertThat(repoArchive.findAll()).extracting(ArchivedAppointment::getId)
+                .containsExactlyInAnyOrder(first.getId(), second.getId(), third.getId());
+        assertThat(bookingSchedule.forRoom(room.getId()).contains(first.getId(), first.getStartsMinute())).isFalse();
+        assertThat(bookingSchedule.forRoom(room.getId()).contains(recent.getId(), recent.getStartsMinute())).isTrue();
+        assertThat(repoLog.findByAppointmentIdOrderById(second.getId())).extracting(BookingLogEntry::getType)
+                .containsExactly(BookingLogEntry.ARCHIVED);
+        // One event per chunk, with the appointments as they were booked
+        assertThat(events.stream(AppointmentsArchived.class)
+                .map(e -> e.getAppointments().stream().map(Appointment::getId).collect(Collectors.toList())))
+                .containsExactly(Arrays.asList(first.getId(), second.getId()), Arrays.asList(third.getId()));
+        assertThat(events.stream(AppointmentsArchived.class).findFirst().get().getAppointments().get(0)
+                .getDoctor().getEmail()).isEqualTo("p.amalia@hospital.accwe");
+
+        // Selected by the day they started on, with what they were booked with
+        int from = Appointment.toEpochMinute(LocalDate.of(2021, 3, 2).atStartOfDay());
+        int to = Appointment.toEpochMinute(LocalDate.of(2021, 3, 4).atStartOfDay());
+        assertThat(repoArchive.findByStartsMinuteGreaterThanEqualAndStartsMinuteLessThanOrderByStartsMinute(from, to))
+                .extracting(ArchivedAppointment::getId).containsExactly(second.getId(), third.getId());
+        ArchivedAppointment archived = repoArchive.findById(first.getId()).get();
+        assertThat(archived.getStartsAt()).isEqualTo(first.getStartsAt());
+        assertThat(archived.getRoom().getRoomName()).isEqualTo("Dermatology");
+        assertThat(archived.getPatient().getEmail()).isEqualTo("j.olaya@email.com");
+
+        // Nothing left to move
+        assertThat(archiver.archive(LocalDateTime.of(2022, 1, 1, 0, 0))).isZero();
+    }
+
+    @Test
+    void should_not_archive_an_appointment_cancelled_while_its_chunk_is_moved(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+        Appointment first = appointment(patient, doctor, room, LocalDateTime.of(2021, 3, 1, 9, 0));
+        Appointment second = appointment(patient, doctor, room, LocalDateTime.of(2021, 3, 2, 9, 0));
+        entityManager.flush();
+
+        // The cancel lands after the chunk is copied and before it is deleted
+        AppointmentRepository racing = mock(AppointmentRepository.class, delegatesTo(repo));
+        doAnswer(invocation -> {
+            repo.deleteById(second.getId());
+            repo.deleteFromArchive(second.getId());
+            return repo.deleteArchived(invocation.getArgument(0));
+        }).when(racing).deleteArchived(anyList());
+        ReflectionTestUtils.setField(archiver, "appointmentRepository", racing);
+        ReflectionTestUtils.setField(archiver, "chunkSize", 10);
+        try {
+            assertThat(archiver.archive(LocalDateTime.of(2022, 1, 1, 0, 0))).isEqualTo(1);
+        } finally {
+            ReflectionTestUtils.setField(archiver, "appointmentRepository", repo);
+        }
+
+        assertThat(repo.findAll()).isEmpty();
+        assertThat(repoArchive.findAll()).extracting(ArchivedAppointment::getId).containsExactly(first.getId());
+        assertThat(repoLog.findByAppointmentIdOrderById(second.getId())).isEmpty();
+        assertThat(events.stream(AppointmentsArchived.class)
+                .map(e -> e.getAppointments().stream().map(Appointment::getId).collect(Collectors.toList())))
+                .containsExactly(Arrays.asList(first.getId()));
+    }
+
+    private Appointment appointment(Patient patient, Doctor doctor, Room room, LocalDateTime startsAt){
+        return entityManager.persist(new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30)));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.feed.AppointmentChangeFeed;
+
+class AppointmentChangeFeedTest {
+
+    private final List<ClientEmitter> clients = new CopyOnWriteArrayList<>();
+
+    private final AppointmentChangeFeed feed = new AppointmentChangeFeed(64, 4) {
+        @Override
+        protected SseEmitter newEmitter() {
+            ClientEmitter client = new ClientEmitter();
+            clients.add(client);
+            return client;
+        }
+    };
+
+    @Test
+    void shouldDisconnectASlowSubscriberWithoutHoldingUpTheOthers() throws Exception {
+        ClientEmitter slow = subscribe();
+        slow.blocked = new CountDownLatch(1);
+        ClientEmitter fast = subscribe();
+
+        // One change stuck in the slow client's socket, then more than its queue holds, while
+        // the fast client keeps up with each of them
+        for (int i = 0; i < 6; i++) {
+            feed.onBooked(new AppointmentBooked(appointment(i)));
+            assertThat(fast.await(i + 1)).isTrue();
+        }
+        assertThat(feed.subscriberCount()).isEqualTo(1);
+
+        slow.blocked.countDown();
+        assertThat(slow.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(slow.events).hasSizeLessThan(6);
+    }
+
+    @Test
+    void shouldSendAHeartbeatComment() throws Exception {
+        ClientEmitter client = subscribe();
+
+        feed.heartbeat();
+
+        assertThat(client.await(1)).isTrue();
+        assertThat(client.events).containsExactly(":" + AppointmentChangeFeed.HEARTBEAT + "\n\n");
+    }
+
+    @Test
+    void shouldSendTheArchivedIdsASubscriberFollows() throws Exception {
+        ClientEmitter dermatology = subscribe("Dermatology");
+        ClientEmitter oncology = subscribe("Oncology");
+        ClientEmitter cardiology = subscribe("Cardiology");
+        Appointment first = appointment(1);
+        Appointment second = appointment(2);
+        Appointment third = appointment(3);
+        third.setRoom(new Room("Oncology"));
+
+        feed.onArchived(new AppointmentsArchived(Arrays.asList(first, second, third)));
+        feed.heartbeat();
+
+        assertThat(dermatology.await(2)).isTrue();
+        assertThat(dermatology.events.get(0)).contains("event:" + AppointmentChangeFeed.ARCHIVED, "{ids=[1, 2]}");
+        assertThat(oncology.await(2)).isTrue();
+        assertThat(oncology.events.get(0)).contains("{ids=[3]}");
+        // Only the heartbeat, as no archived appointment was in the room
+        assertThat(cardiology.await(1)).isTrue();
+        assertThat(cardiology.events).containsExactly(":" + AppointmentChangeFeed.HEARTBEAT + "\n\n");
+    }
+
+    private ClientEmitter subscribe() {
+        return subscribe(null);
+    }
+
+    private ClientEmitter subscribe(String roomName) {
+        feed.subscribe(roomName, null, null);
+        return clients.get(clients.size() - 1);
+    }
+
+    private static Appointment appointment(long id) {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0).plusHours(id);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"),
+                startsAt, startsAt.plusMinutes(30));
+        appointment.setId(id);
+        return appointment;
+    }
+
+    /** Records what would be written to the client, optionally stuck on the first write. */
+    private static final class ClientEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile CountDownLatch blocked;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            events.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        boolean await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return events.size() >= count;
+        }
+    }
+}
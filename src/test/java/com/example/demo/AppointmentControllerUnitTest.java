@@ -1,49 +1,110 @@
 package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import java.time.LocalDateTime;
 import java.time.format.*;
+import javax.persistence.EntityNotFoundException;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.feed.AppointmentChangeFeed;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.schedule.BookingSchedule;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 @WebMvcTest(AppointmentController.class)
+@Import({SimpleMeterRegistry.class, BookingSchedule.class, AppointmentChangeFeed.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private RoomDirectory roomDirectory;
+
+    @MockBean
+    private BookingLogRepository bookingLogRepository;
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BookingSchedule bookingSchedule;
+
+    @Autowired
+    private ThreadPoolTaskExecutor streamingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        bookingSchedule.clear();
+        when(roomDirectory.findOrCreate(anyString())).thenAnswer(invocation -> room(invocation.getArgument(0)));
+    }
+
+    private static Room room(String roomName) {
+        Room room = new Room(roomName);
+        room.setId(Math.abs(roomName.hashCode() % 1000) + 1);
+        return room;
+    }
+
+    private static List<Object[]> scheduleRows(Appointment... appointments) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Appointment a : appointments) {
+            rows.add(new Object[] {a.getId(), room(a.getRoom().getRoomName()).getId(), a.getStartsMinute(), a.getFinishesMinute()});
+        }
+        return rows;
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -84,6 +145,40 @@ class AppointmentControllerUnitTest{
 
     }
 
+    @Test
+    void shouldNotCreateAppointmentForAnUnknownDoctorId() throws Exception {
+        when(appointmentRepository.saveBooking(any(Appointment.class))).thenThrow(
+                new JpaObjectRetrievalFailureException(new EntityNotFoundException("Doctor 7 does not exist")));
+
+        String booking = "{\"patient\":{\"id\":3},\"doctor\":{\"id\":7},\"room\":{\"roomName\":\"Dermatology\"},"
+                + "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}";
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isBadRequest());
+
+        // The slot was not taken
+        when(appointmentRepository.saveBooking(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectASlotAnotherInstanceTookAndRememberIt() throws Exception {
+        Appointment taken = new Appointment(null, null, room("Dermatology"), LocalDateTime.of(2023, 4, 24, 19, 0),
+                LocalDateTime.of(2023, 4, 24, 20, 0));
+        when(appointmentRepository.saveBooking(any(Appointment.class))).thenThrow(
+                new SlotTakenException(42, taken.getStartsMinute(), taken.getFinishesMinute()));
+
+        String booking = "{\"patient\":{\"id\":3},\"doctor\":{\"id\":7},\"room\":{\"roomName\":\"Dermatology\"},"
+                + "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}";
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isNotAcceptable());
+
+        // Turned away by the schedule this time, without going to the table
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isNotAcceptable());
+        verify(appointmentRepository, times(1)).saveBooking(any(Appointment.class));
+    }
+
     @Test
     void shouldCreateOneAppointmentOutOfTwoConflictDate() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -108,10 +203,6 @@ class AppointmentControllerUnitTest{
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isNotAcceptable());
@@ -147,10 +238,6 @@ class AppointmentControllerUnitTest{
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isOk());
@@ -158,6 +245,75 @@ class AppointmentControllerUnitTest{
 
     }
     
+    @Test
+    void shouldTimeConflictCheckByOutcome() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("09:30 25/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("10:30 25/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        Appointment invalid = new Appointment(patient, doctor, room, finishesAt, startsAt);
+
+        long conflicts = meterRegistry.timer("booking.conflict.check", "result", "conflict").count();
+        long badRequests = meterRegistry.timer("booking.conflict.check", "result", "bad_request").count();
+
+        when(appointmentRepository.findScheduleRows()).thenReturn(scheduleRows(appointment));
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(invalid)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(meterRegistry.timer("booking.conflict.check", "result", "conflict").count()).isEqualTo(conflicts + 1);
+        assertThat(meterRegistry.timer("booking.conflict.check", "result", "bad_request").count()).isEqualTo(badRequests + 1);
+    }
+
+    @Test
+    void shouldRecordBookingPhasesInFlightRecorder() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("09:30 25/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("10:30 25/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        when(appointmentRepository.findScheduleRows()).thenReturn(scheduleRows(appointment));
+
+        Path dump = Files.createTempFile("booking", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.demo.Booking");
+            recording.enable("com.example.demo.BookingPhase");
+            recording.start();
+
+            mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(appointment)))
+                    .andExpect(status().isNotAcceptable());
+
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.example.demo.BookingPhase"))
+                    .extracting(e -> e.getString("phase"), e -> e.getString("room"), e -> e.getInt("candidateRows"))
+                    .containsExactly(tuple("validation", "Dermatology", 0), tuple("conflict scan", "Dermatology", 1));
+            assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.example.demo.Booking"))
+                    .extracting(e -> e.getInt("status"))
+                    .containsExactly(406);
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
         List<Appointment> appointments = new ArrayList<Appointment>();
@@ -196,6 +352,121 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldGetAppointmentsAsJsonArrayByDefault() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:00 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        when(appointmentRepository.findAll()).thenReturn(Collections.singletonList(appointment));
+        mockMvc.perform(get("/api/appointments"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"));
+    }
+
+    @Test
+    void shouldStreamAppointmentsAsNdjson() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:00 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        Appointment appointment2 = new Appointment(patient, doctor, room, startsAt.plusHours(2), finishesAt.plusHours(2));
+        appointment.setId(1);
+        appointment2.setId(2);
+
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenReturn(Arrays.asList(appointment, appointment2));
+
+        MvcResult result = mockMvc.perform(get("/api/appointments").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], Appointment.class).getId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStreamPastTheFirstKeysetPage() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+        // One full page of 500, then the single row after its last id
+        List<Appointment> firstPage = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            Appointment appointment = new Appointment(patient, doctor, room, startsAt.plusHours(i), startsAt.plusHours(i).plusMinutes(30));
+            appointment.setId(i * 2);
+            firstPage.add(appointment);
+        }
+        Appointment last = new Appointment(patient, doctor, room, startsAt.minusDays(1), startsAt.minusDays(1).plusMinutes(30));
+        last.setId(1001);
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(firstPage);
+        when(appointmentRepository.findByIdGreaterThanOrderByIdAsc(eq(1000L), any())).thenReturn(Collections.singletonList(last));
+
+        MvcResult result = mockMvc.perform(get("/api/appointments").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(501);
+        assertThat(objectMapper.readValue(lines[499], Appointment.class).getId()).isEqualTo(1000);
+        assertThat(objectMapper.readValue(lines[500], Appointment.class).getId()).isEqualTo(1001);
+        verify(appointmentRepository, times(2)).findByIdGreaterThanOrderByIdAsc(any(Long.class), any());
+    }
+
+    @Test
+    void shouldRefuseAStreamWhenTheStreamingPoolIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Every thread busy and the queue full
+            ThreadPoolExecutor pool = streamingExecutor.getThreadPoolExecutor();
+            while (pool.getActiveCount() < pool.getMaximumPoolSize() || pool.getQueue().remainingCapacity() > 0) {
+                try {
+                    pool.execute(() -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Idle threads have not taken the queued ones yet
+                    Thread.sleep(10);
+                }
+            }
+
+            mockMvc.perform(get("/api/appointments").accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        } finally {
+            release.countDown();
+        }
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -224,6 +495,91 @@ class AppointmentControllerUnitTest{
                 
     }
     
+    @Test
+    void shouldGetTheHistoryOfAnAppointment() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:00 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room("Dermatology"), startsAt, finishesAt);
+        appointment.setId(1);
+
+        when(bookingLogRepository.findByAppointmentIdOrderById(1L)).thenReturn(Arrays.asList(
+                new BookingLogEntry(BookingLogEntry.BOOKED, appointment),
+                new BookingLogEntry(BookingLogEntry.CANCELLED, appointment)));
+
+        mockMvc.perform(get("/api/appointments/1/history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("booked"))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[1].type").value("cancelled"));
+
+        mockMvc.perform(get("/api/appointments/2/history"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldGetAppointmentsByIdsInRequestOrder() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+
+        Appointment first = new Appointment(patient, doctor, room("Dermatology"), startsAt, startsAt.plusHours(1));
+        first.setId(1);
+        Appointment third = new Appointment(patient, doctor, room("Oncology"), startsAt, startsAt.plusHours(1));
+        third.setId(3);
+
+        // The database returns them in its own order; 2 does not exist
+        when(appointmentRepository.findAllById(any())).thenReturn(Arrays.asList(first, third));
+
+        mockMvc.perform(get("/api/appointments").param("ids", "3,2,1,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(1));
+        verify(appointmentRepository, times(1)).findAllById(any());
+
+        when(appointmentRepository.findAllById(any())).thenReturn(Collections.emptyList());
+        mockMvc.perform(get("/api/appointments").param("ids", "2"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/appointments").param("ids", "x"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldListAppointmentsAsRefsWithOnlyTheRequestedFields() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        when(appointmentRepository.findRefsOrderById()).thenReturn(Arrays.asList(
+                new AppointmentRef(1, 10L, 20L, "Dermatology", startsAt, startsAt.plusHours(1))));
+
+        mockMvc.perform(get("/api/appointments").param("view", "ref"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].patientId").value(10))
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].roomId").doesNotExist())
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].patient").doesNotExist());
+
+        mockMvc.perform(get("/api/appointments").param("fields", "doctorId,startsAt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].doctorId").value(20))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].patientId").doesNotExist())
+                .andExpect(jsonPath("$[0].finishesAt").doesNotExist());
+        verify(appointmentRepository, times(0)).findAll();
+
+        mockMvc.perform(get("/api/appointments").param("fields", "patient"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/appointments").param("view", "full"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldNotGetAnyAppointmentById() throws Exception{
         long id = 31;
@@ -260,6 +616,31 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldFreeTheSlotOfADeletedAppointment() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("12:00 26/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("13:00 26/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room("Dermatology"), startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+        mockMvc.perform(delete("/api/appointments/" + appointment.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void shouldNotDeleteAppointment() throws Exception{
         long id = 31;
@@ -274,5 +655,52 @@ class AppointmentControllerUnitTest{
                 .andExpect(status().isOk());
                 
     }
-}
 
+    @Test
+    void shouldPushChangesToSubscribersAndReplayThemAfterLastEventId() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("09:00 27/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("10:00 27/04/2023", formatter);
+
+        MvcResult dermatology = mockMvc.perform(get("/api/appointments/changes").param("room", "Dermatology"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Appointment(patient, doctor, room("Dermatology"), startsAt, finishesAt))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Appointment(patient, doctor, room("Cardiology"), startsAt, finishesAt))))
+                .andExpect(status().isOk());
+
+        String live = awaitContent(dermatology, "event:created");
+        assertThat(live).contains("Dermatology").doesNotContain("Cardiology");
+        long firstId = Long.parseLong(live.substring(live.indexOf("id:") + 3, live.indexOf('\n', live.indexOf("id:"))));
+
+        // Reconnecting with the id before the Dermatology booking gets both bookings again
+        String replay = awaitContent(mockMvc.perform(get("/api/appointments/changes").header("Last-Event-ID", firstId - 1))
+                .andExpect(request().asyncStarted())
+                .andReturn(), "id:" + (firstId + 1));
+        assertThat(replay).contains("id:" + firstId, "id:" + (firstId + 1));
+        assertThat(replay.indexOf("Dermatology")).isLessThan(replay.indexOf("Cardiology"));
+
+        // An id the buffer no longer covers asks the client to reload the list
+        assertThat(awaitContent(mockMvc.perform(get("/api/appointments/changes").header("Last-Event-ID", 1))
+                .andExpect(request().asyncStarted())
+                .andReturn(), "event:reset")).contains("event:reset");
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.demo;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.orm.ObjectRetrievalFailureException;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
@@ -161,6 +166,68 @@ class AppointmentJpaUnitTest {
         assertThat(foundAppointment).isEqualTo(appointment2);
     }
 
+    @Test
+    void should_load_appointments_with_their_associations_in_one_statement(){
+        Patient patient1 = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Mariela", "Eric", 42, "m.eric@email.com");
+
+        Doctor doctor1 = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe");
+
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+
+        entityManager.persist(patient1);
+        entityManager.persist(patient2);
+        entityManager.persist(doctor1);
+        entityManager.persist(doctor2);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment appointment1 = new Appointment(patient1, doctor1, room1, startsAt, finishesAt);
+        Appointment appointment2 = new Appointment(patient2, doctor2, room2, startsAt, finishesAt);
+
+        entityManager.persist(appointment1);
+        entityManager.persist(appointment2);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Appointment> appointments = QueryBudget.assertStatements(1, () -> repoAppointments.findAll());
+        assertThat(appointments).hasSize(2);
+
+        entityManager.clear();
+        Optional<Appointment> found = QueryBudget.assertStatements(1, () -> repoAppointments.findById(appointment2.getId()));
+        assertThat(found.get().getRoom().getRoomName()).isEqualTo("Oncology");
+    }
+
+    @Test
+    void should_read_appointment_refs_with_room_names_in_one_query(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        Appointment booked = entityManager.persist(new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1)));
+        // Without a room, so an inner join would drop it
+        Appointment roomless = entityManager.persist(new Appointment(patient, doctor, null, startsAt, startsAt.plusHours(1)));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<AppointmentRef> refs = QueryBudget.assertStatements(1, () -> repoAppointments.findRefsOrderById());
+        assertThat(refs).extracting(AppointmentRef::getId).containsExactly(booked.getId(), roomless.getId());
+        assertThat(refs.get(0).getPatientId()).isEqualTo(patient.getId());
+        assertThat(refs.get(0).getDoctorId()).isEqualTo(doctor.getId());
+        assertThat(refs.get(0).getRoomName()).isEqualTo("Dermatology");
+        assertThat(refs.get(0).getStartsAt()).isEqualTo(startsAt);
+        assertThat(refs.get(1).getRoomName()).isNull();
+
+        assertThat(repoAppointments.findRefsByIdInOrderById(Collections.singleton(roomless.getId())))
+                .extracting(AppointmentRef::getId).containsExactly(roomless.getId());
+    }
+
     @Test
     void should_delete_appointment(){
         // Appointment (Patient, Doctor, Room, startsAt, finishesAt)
@@ -210,6 +277,97 @@ class AppointmentJpaUnitTest {
         assertThat(appointments).hasSize(2).contains(appointment1, appointment3);
     }
 
+    @Test
+    void should_reference_the_room_by_id_and_keep_it_when_the_appointment_is_deleted(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        Appointment appointment = entityManager.persist(new Appointment(patient, doctor, room, startsAt, finishesAt));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(room.getId()).isNotZero();
+        assertThat(repoAppointments.findById(appointment.getId()).get().getRoom().getId()).isEqualTo(room.getId());
+
+        repoAppointments.deleteById(appointment.getId());
+        entityManager.flush();
+
+        assertThat(repoRooms.findByRoomName("Dermatology")).isPresent();
+    }
+
+    @Test
+    void should_book_an_existing_patient_and_doctor_by_id_and_keep_them_when_cancelled(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+        entityManager.flush();
+        entityManager.clear();
+
+        // As the JSON body of a booking carries them: just the ids
+        Patient patientRef = new Patient();
+        patientRef.setId(patient.getId());
+        Doctor doctorRef = new Doctor();
+        doctorRef.setId(doctor.getId());
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        Appointment appointment = repoAppointments.saveBooking(
+                new Appointment(patientRef, doctorRef, room, startsAt, startsAt.plusHours(1)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(repoPatients.count()).isEqualTo(1);
+        assertThat(repoAppointments.findById(appointment.getId()).get().getDoctor().getEmail())
+                .isEqualTo("c.zaray@hospital.accwe");
+
+        repoAppointments.deleteById(appointment.getId());
+        entityManager.flush();
+
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoPatients.existsById(patient.getId())).isTrue();
+        assertThat(repoDoctors.existsById(doctor.getId())).isTrue();
+
+        Doctor unknown = new Doctor();
+        unknown.setId(doctor.getId() + 1000);
+        assertThatThrownBy(() -> repoAppointments.saveBooking(
+                new Appointment(new Patient("Mariela", "Eric", 42, "m.eric@email.com"), unknown, room, startsAt,
+                        startsAt.plusHours(1))))
+                .isInstanceOf(ObjectRetrievalFailureException.class);
+    }
+
+    @Test
+    void should_not_book_a_slot_already_taken_in_the_table(){
+        Room room = entityManager.persist(new Room("Dermatology"));
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        // Written by another instance, which this one's schedule knows nothing about
+        Appointment taken = entityManager.persist(new Appointment(
+                new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe"), room, startsAt, startsAt.plusHours(1)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThatThrownBy(() -> repoAppointments.saveBooking(
+                new Appointment(new Patient("Mariela", "Eric", 42, "m.eric@email.com"),
+                        new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), room, startsAt.plusMinutes(30),
+                        startsAt.plusHours(2))))
+                .isInstanceOf(SlotTakenException.class)
+                .extracting("appointmentId").isEqualTo(taken.getId());
+
+        Appointment next = repoAppointments.saveBooking(
+                new Appointment(new Patient("Mariela", "Eric", 42, "m.eric@email.com"),
+                        new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), room, startsAt.plusHours(1),
+                        startsAt.plusHours(2)));
+        entityManager.flush();
+
+        assertThat(repoAppointments.findById(next.getId())).isPresent();
+    }
+
     @Test
     void should_delete_all_appointments(){
         // Appointment (Patient, Doctor, Room, startsAt, finishesAt)
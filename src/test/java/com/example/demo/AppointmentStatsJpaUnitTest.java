@@ -0,0 +1,117 @@
+package com.example.demo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+
+import com.example.demo.repositories.*;
+import com.example.demo.entities.*;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.stats.AppointmentStats;
+
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(AppointmentStats.class)
+class AppointmentStatsJpaUnitTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    AppointmentStats appointmentStats;
+
+    @Autowired
+    AppointmentStatRepository repoStats;
+
+    @Test
+    void should_count_bookings_and_cancellations_per_doctor_week_room_day_and_patient_month(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        // Thursday and Friday of one week, and the Monday after, which is also a new month
+        Appointment thursday = appointment(patient, doctor, room, LocalDateTime.of(2023, 4, 27, 9, 0));
+        Appointment friday = appointment(patient, doctor, room, LocalDateTime.of(2023, 4, 28, 9, 0));
+        Appointment monday = appointment(patient, doctor, room, LocalDateTime.of(2023, 5, 1, 9, 0));
+
+        // Read before the bookings, so the cached counts are the ones being updated
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).isEmpty();
+
+        // The writes are left to the writer thread, here held back so the read writes the
+        // changes queued before it
+        List<Runnable> writes = new ArrayList<>();
+        ReflectionTestUtils.setField(appointmentStats, "writer", (Executor) writes::add);
+
+        eventPublisher.publishEvent(new AppointmentBooked(thursday));
+        eventPublisher.publishEvent(new AppointmentBooked(friday));
+        eventPublisher.publishEvent(new AppointmentBooked(monday));
+        eventPublisher.publishEvent(new AppointmentCancelled(friday));
+        eventPublisher.publishEvent(new AppointmentBooked(friday));
+        eventPublisher.publishEvent(new AppointmentCancelled(thursday));
+        assertThat(writes).hasSize(6);
+        assertThat(repoStats.count()).isZero();
+
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(
+                entry(LocalDate.of(2023, 4, 24), 1), entry(LocalDate.of(2023, 5, 1), 1));
+        assertThat(appointmentStats.counts(AppointmentStat.ROOM_DAY, room.getId())).containsExactly(
+                entry(LocalDate.of(2023, 4, 27), 0), entry(LocalDate.of(2023, 4, 28), 1), entry(LocalDate.of(2023, 5, 1), 1));
+        assertThat(appointmentStats.counts(AppointmentStat.PATIENT_MONTH, patient.getId())).containsExactly(
+                entry(LocalDate.of(2023, 4, 1), 1), entry(LocalDate.of(2023, 5, 1), 1));
+
+        // The table agrees with the cache
+        ReflectionTestUtils.invokeMethod(ReflectionTestUtils.getField(appointmentStats, "subjects"), "clear");
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(
+                entry(LocalDate.of(2023, 4, 24), 1), entry(LocalDate.of(2023, 5, 1), 1));
+        assertThat(repoStats.count()).isEqualTo(7);
+
+        // Nothing is left for the writer thread
+        writes.forEach(Runnable::run);
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(
+                entry(LocalDate.of(2023, 4, 24), 1), entry(LocalDate.of(2023, 5, 1), 1));
+    }
+
+    @Test
+    void should_read_the_counts_again_once_they_expire(){
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        LocalDate week = LocalDate.of(2023, 4, 24);
+        repoStats.save(new AppointmentStat(AppointmentStat.DOCTOR_WEEK, doctor.getId(), week, 1));
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(entry(week, 1));
+
+        // Counted by another instance
+        repoStats.add(AppointmentStat.DOCTOR_WEEK, doctor.getId(), week, 1);
+        assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(entry(week, 1));
+
+        Object ttlMs = ReflectionTestUtils.getField(appointmentStats, "ttlMs");
+        ReflectionTestUtils.setField(appointmentStats, "ttlMs", 0L);
+        try {
+            assertThat(appointmentStats.counts(AppointmentStat.DOCTOR_WEEK, doctor.getId())).containsExactly(entry(week, 2));
+        } finally {
+            ReflectionTestUtils.setField(appointmentStats, "ttlMs", ttlMs);
+        }
+    }
+
+    private Appointment appointment(Patient patient, Doctor doctor, Room room, LocalDateTime startsAt){
+        return entityManager.persist(new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.json.DateTimeCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+class DateTimeCodecTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DateTimeCodec.PATTERN);
+
+    private static final List<LocalDateTime> TIMES = Arrays.asList(
+            LocalDateTime.of(2023, 4, 24, 19, 30),
+            LocalDateTime.of(2023, 12, 31, 23, 59, 59, 999_000_000),
+            LocalDateTime.of(2000, 1, 1, 0, 0),
+            LocalDateTime.of(999, 2, 28, 7, 5),
+            LocalDateTime.of(1, 1, 1, 0, 0),
+            LocalDateTime.of(0, 1, 1, 0, 0),
+            LocalDateTime.of(9999, 12, 31, 23, 59),
+            LocalDateTime.of(10000, 1, 1, 0, 0));
+
+    private final ObjectMapper application = mapper(true);
+    private final ObjectMapper formatter = mapper(false);
+
+    @Test
+    void shouldWriteAndReadTheSameTextAsTheFormatter() throws Exception {
+        for (LocalDateTime time : TIMES) {
+            String json = application.writeValueAsString(time);
+            assertThat(json).as("%s", time).isEqualTo(formatter.writeValueAsString(time));
+            assertThat(application.readValue(json, LocalDateTime.class))
+                    .isEqualTo(formatter.readValue(json, LocalDateTime.class));
+        }
+        assertThat(application.writeValueAsString(LocalDateTime.of(2023, 4, 24, 9, 5))).isEqualTo("\"09:05 24/04/2023\"");
+    }
+
+    @Test
+    void shouldLeaveTextOutsideTheFastPathToTheFormatter() throws Exception {
+        // Resolved the way the formatter resolves it, not rejected
+        for (String json : Arrays.asList("\"10:00 31/04/2023\"", "\"24:00 24/04/2023\"")) {
+            assertThat(application.readValue(json, LocalDateTime.class))
+                    .isEqualTo(formatter.readValue(json, LocalDateTime.class));
+        }
+        assertThatThrownBy(() -> application.readValue("\"25:00 24/04/2023\"", LocalDateTime.class))
+                .isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> application.readValue("\"19:30 24/04/0000\"", LocalDateTime.class))
+                .isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> application.readValue("\"1930 24/04/2023\"", LocalDateTime.class))
+                .isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> application.readValue("\"19:30 24-04-2023\"", LocalDateTime.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void shouldKeepAppointmentJsonUnchanged() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"),
+                startsAt, startsAt.plusHours(1));
+
+        String json = application.writeValueAsString(appointment);
+        assertThat(json).isEqualTo(formatter.writeValueAsString(appointment));
+        assertThat(json).contains("\"startsAt\":\"19:30 24/04/2023\"");
+
+        Appointment read = application.readValue(json, Appointment.class);
+        assertThat(read.getStartsAt()).isEqualTo(startsAt);
+        assertThat(read.getFinishesMinute()).isEqualTo(appointment.getFinishesMinute());
+        assertThat(read.getPatient().getEmail()).isEqualTo("j.olaya@email.com");
+    }
+
+    private static ObjectMapper mapper(boolean application) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (application) {
+            new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        } else {
+            // What JacksonConfiguration registered before the codec
+            builder.serializers(new LocalDateTimeSerializer(FORMATTER));
+            builder.deserializers(new LocalDateTimeDeserializer(FORMATTER));
+        }
+        return builder.build();
+    }
+}
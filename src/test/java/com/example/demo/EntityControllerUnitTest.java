@@ -3,9 +3,12 @@ package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -16,6 +19,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.*;
 
@@ -24,7 +28,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -34,14 +42,31 @@ import org.springframework.util.MultiValueMap;
 import com.example.demo.controllers.*;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.events.AppointmentBooked;
+import com.example.demo.events.AppointmentCancelled;
+import com.example.demo.events.AppointmentsArchived;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.schedule.BookingSchedule;
+import com.example.demo.schedule.DoctorAgenda;
+import com.example.demo.schedule.UtilizationReport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(DoctorController.class)
+@Import(DoctorAgenda.class)
 class DoctorControllerUnitTest {
 
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DoctorAgenda agenda;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -88,6 +113,26 @@ class DoctorControllerUnitTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.firstName").value(sampleDoctor.getFirstName()));
     }
 
+    @Test
+    void getDoctorsByIds_ReturnsThemInRequestOrderFromOneQuery() throws Exception {
+        Doctor other = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        sampleDoctor.setId(1);
+        other.setId(2);
+        when(doctorRepository.findAllById(any())).thenReturn(Arrays.asList(sampleDoctor, other));
+
+        mockMvc.perform(get("/api/doctors").param("ids", "2,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(2, 1)));
+        verify(doctorRepository, times(1)).findAllById(any());
+
+        StringBuilder tooMany = new StringBuilder("1");
+        for (int id = 2; id <= 501; id++) {
+            tooMany.append(',').append(id);
+        }
+        mockMvc.perform(get("/api/doctors").param("ids", tooMany.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getDoctorById_ReturnsNotFoundForNonExistingDoctor() throws Exception {
         when(doctorRepository.findById(1L)).thenReturn(Optional.empty());
@@ -97,6 +142,125 @@ class DoctorControllerUnitTest {
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    @Test
+    void getDoctorAgenda_KeepsTheDayCurrentWithoutReloadingIt() throws Exception {
+        sampleDoctor.setId(7);
+        LocalDateTime day = LocalDateTime.of(2023, 4, 24, 0, 0);
+        Appointment nine = agendaAppointment(1, day.withHour(9));
+        Appointment eleven = agendaAppointment(2, day.withHour(11));
+        when(appointmentRepository.findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1))).thenReturn(Arrays.asList(nine, eleven));
+
+        mockMvc.perform(get("/api/doctors/7/agenda").param("date", "24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startsAt").value(contains("09:00 24/04/2023", "11:00 24/04/2023")));
+
+        eventPublisher.publishEvent(new AppointmentBooked(agendaAppointment(3, day.withHour(10))));
+        eventPublisher.publishEvent(new AppointmentCancelled(nine));
+        eventPublisher.publishEvent(new AppointmentBooked(agendaAppointment(4, day.plusDays(1).withHour(10))));
+
+        mockMvc.perform(get("/api/doctors/7/agenda").param("date", "24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startsAt").value(contains("10:00 24/04/2023", "11:00 24/04/2023")));
+
+        eventPublisher.publishEvent(new AppointmentsArchived(Collections.singletonList(eleven)));
+
+        mockMvc.perform(get("/api/doctors/7/agenda").param("date", "24/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startsAt").value(contains("10:00 24/04/2023")));
+
+        verify(appointmentRepository, times(1)).findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1));
+    }
+
+    @Test
+    void getDoctorAgenda_ReturnsNoContentForAFreeDayAndNotFoundForAnUnknownDoctor() throws Exception {
+        when(doctorRepository.existsById(8L)).thenReturn(true);
+
+        mockMvc.perform(get("/api/doctors/8/agenda").param("date", "25/04/2023"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/doctors/9/agenda").param("date", "25/04/2023"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getDoctorAgenda_KeepsFreeDaysOnlyForDoctorsThatExist() throws Exception {
+        LocalDateTime day = LocalDateTime.of(2023, 4, 25, 0, 0);
+        when(doctorRepository.existsById(8L)).thenReturn(true);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/doctors/8/agenda").param("date", "25/04/2023"))
+                    .andExpect(status().isNoContent());
+            mockMvc.perform(get("/api/doctors/9/agenda").param("date", "25/04/2023"))
+                    .andExpect(status().isNotFound());
+        }
+
+        verify(appointmentRepository, times(1)).findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                8L, day, day.plusDays(1));
+        verify(appointmentRepository, times(2)).findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                9L, day, day.plusDays(1));
+    }
+
+    @Test
+    void getDoctorAgenda_LoadsTheDayAgainWhenABookingRacedTheLoad() throws Exception {
+        sampleDoctor.setId(7);
+        LocalDateTime day = LocalDateTime.of(2023, 4, 26, 0, 0);
+        Appointment nine = agendaAppointment(1, day.withHour(9));
+        Appointment ten = agendaAppointment(2, day.withHour(10));
+        // The booking commits after the first query has read the day, and its event arrives
+        // before the day is kept
+        when(appointmentRepository.findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1))).thenAnswer(invocation -> {
+                    eventPublisher.publishEvent(new AppointmentBooked(ten));
+                    return Collections.singletonList(nine);
+                }).thenReturn(Arrays.asList(nine, ten));
+
+        mockMvc.perform(get("/api/doctors/7/agenda").param("date", "26/04/2023"))
+                .andExpect(status().isOk());
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/doctors/7/agenda").param("date", "26/04/2023"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[*].startsAt").value(contains("09:00 26/04/2023", "10:00 26/04/2023")));
+        }
+
+        verify(appointmentRepository, times(2)).findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1));
+    }
+
+    @Test
+    void getDoctorAgenda_ReadsTheDayAgainOnceItExpires() throws Exception {
+        sampleDoctor.setId(7);
+        LocalDateTime day = LocalDateTime.of(2023, 4, 27, 0, 0);
+        Appointment nine = agendaAppointment(1, day.withHour(9));
+        // Booked through another instance, so no event arrives here
+        Appointment ten = agendaAppointment(2, day.withHour(10));
+        when(appointmentRepository.findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1))).thenReturn(Collections.singletonList(nine), Arrays.asList(nine, ten));
+
+        mockMvc.perform(get("/api/doctors/7/agenda").param("date", "27/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startsAt").value(contains("09:00 27/04/2023")));
+        Object ttlMs = ReflectionTestUtils.getField(agenda, "ttlMs");
+        ReflectionTestUtils.setField(agenda, "ttlMs", 0L);
+        try {
+            mockMvc.perform(get("/api/doctors/7/agenda").param("date", "27/04/2023"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[*].startsAt").value(contains("09:00 27/04/2023", "10:00 27/04/2023")));
+        } finally {
+            ReflectionTestUtils.setField(agenda, "ttlMs", ttlMs);
+        }
+
+        verify(appointmentRepository, times(2)).findByDoctorIdAndStartsAtGreaterThanEqualAndStartsAtLessThanOrderByStartsAt(
+                7L, day, day.plusDays(1));
+    }
+
+    private Appointment agendaAppointment(long id, LocalDateTime startsAt) {
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                sampleDoctor, new Room("Dermatology"), startsAt, startsAt.plusMinutes(30));
+        appointment.setId(id);
+        return appointment;
+    }
+
     @Test
     void createDoctor_CreatesDoctorAndReturnsCreatedStatus() throws Exception {
         mockMvc.perform(MockMvcRequestBuilders.post("/api/doctor")
@@ -239,11 +403,21 @@ class PatientControllerUnitTest {
 }
 
 @WebMvcTest(RoomController.class)
+@Import({RoomDirectory.class, UtilizationReport.class, BookingSchedule.class})
 class RoomControllerUnitTest {
 
     @MockBean
     private RoomRepository roomRepository;
 
+    @MockBean
+    private AppointmentRepository appointmentRepository;
+
+    @MockBean
+    private BookingLogRepository bookingLogRepository;
+
+    @Autowired
+    private BookingSchedule bookingSchedule;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -274,6 +448,48 @@ class RoomControllerUnitTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void getRoomUtilization_SweepsEachRoomIntoHourlyAndDailyBuckets() throws Exception {
+        Room dermatology = new Room("Dermatology");
+        dermatology.setId(1);
+        Room oncology = new Room("Oncology");
+        oncology.setId(2);
+        when(roomRepository.findAll(any(Sort.class))).thenReturn(Arrays.asList(dermatology, oncology));
+
+        // 08:00-09:00 and 08:30-10:00 overlap (rows from before the conflict check), 10:00-10:30 is back to back
+        int day = Appointment.toEpochMinute(LocalDateTime.of(2023, 4, 24, 0, 0));
+        when(appointmentRepository.findScheduleRows()).thenReturn(Arrays.asList(
+                new Object[] {1L, 1, day + 8 * 60, day + 9 * 60},
+                new Object[] {2L, 1, day + 8 * 60 + 30, day + 10 * 60},
+                new Object[] {3L, 1, day + 10 * 60, day + 10 * 60 + 30},
+                new Object[] {4L, 1, day + 24 * 60 + 8 * 60, day + 24 * 60 + 9 * 60}));
+        bookingSchedule.clear();
+
+        mockMvc.perform(get("/api/rooms/utilization")
+                .param("from", "24/04/2023").param("to", "24/04/2023").param("granularity", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].occupancyPercent.length()").value(24))
+                .andExpect(jsonPath("$[0].occupancyPercent[7]").value(0.0))
+                .andExpect(jsonPath("$[0].occupancyPercent[8]").value(100.0))
+                .andExpect(jsonPath("$[0].occupancyPercent[9]").value(100.0))
+                .andExpect(jsonPath("$[0].occupancyPercent[10]").value(50.0))
+                .andExpect(jsonPath("$[0].peakConcurrent[8]").value(2))
+                .andExpect(jsonPath("$[0].peakConcurrent[10]").value(1))
+                .andExpect(jsonPath("$[0].peak").value(2))
+                .andExpect(jsonPath("$[1].roomName").value("Oncology"))
+                .andExpect(jsonPath("$[1].peak").value(0));
+
+        mockMvc.perform(get("/api/rooms/utilization").param("from", "24/04/2023").param("to", "25/04/2023"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].occupancyPercent").value(contains(10.4, 4.2)))
+                .andExpect(jsonPath("$[0].peakConcurrent").value(contains(2, 1)));
+
+        mockMvc.perform(get("/api/rooms/utilization")
+                .param("from", "24/04/2023").param("to", "24/04/2023").param("granularity", "week"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getRoomByRoomName_ValidRoomName_ReturnsRoom() throws Exception {
         // Arrange
@@ -298,6 +514,22 @@ class RoomControllerUnitTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getRoomByRoomName_RepeatedLookups_QueryRepositoryOnce() throws Exception {
+        // Arrange
+        String roomName = "Room104";
+        when(roomRepository.findByRoomName(roomName)).thenReturn(Optional.of(new Room(roomName)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rooms/{roomName}", roomName))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/rooms/{roomName}", roomName))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roomName").value(roomName));
+
+        verify(roomRepository, times(1)).findByRoomName(roomName);
+    }
+
     @Test
     void createRoom_ValidRoom_ReturnsCreatedRoom() throws Exception {
         // Arrange
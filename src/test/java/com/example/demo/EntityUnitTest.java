@@ -68,7 +68,7 @@ class EntityUnitTest {
         Room room = new Room("Room101");
         entityManager.persistAndFlush(room);
 
-        Room retrievedRoom = entityManager.find(Room.class, room.getRoomName());
+        Room retrievedRoom = entityManager.find(Room.class, room.getId());
 
         assertThat(retrievedRoom).isEqualTo(room);
     }
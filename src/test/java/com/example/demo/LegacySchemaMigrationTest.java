@@ -0,0 +1,55 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Migrates a database the way production ones were left by ddl-auto=update, with Hibernate's
+ * FK&lt;hash&gt; foreign keys, baselined at V1 as spring.flyway.baseline-on-migrate does.
+ */
+class LegacySchemaMigrationTest {
+
+    @Test
+    void shouldMigrateASchemaCreatedByHibernate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("legacy/ddl-auto-schema-h2.sql")).execute(dataSource);
+
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").baselineOnMigrate(true)
+                .load().migrate();
+
+        // Room is keyed by its new id, and the appointment follows it
+        assertThat(jdbc.queryForList("select k.column_name from information_schema.table_constraints c "
+                + "join information_schema.key_column_usage k on k.constraint_schema = c.constraint_schema "
+                + "and k.constraint_name = c.constraint_name "
+                + "where c.table_name = 'ROOM' and c.constraint_type = 'PRIMARY KEY'", String.class))
+                .containsExactly("ID");
+        assertThat(jdbc.queryForObject("select r.room_name from appointment a join room r on r.id = a.room_id "
+                + "where a.id = 3", String.class)).isEqualTo("Oncology");
+
+        List<String> roomForeignKeys = jdbc.queryForList("select fk.constraint_name "
+                + "from information_schema.referential_constraints rc "
+                + "join information_schema.table_constraints fk on fk.constraint_schema = rc.constraint_schema "
+                + "and fk.constraint_name = rc.constraint_name "
+                + "join information_schema.table_constraints pk on pk.constraint_schema = rc.unique_constraint_schema "
+                + "and pk.constraint_name = rc.unique_constraint_name where pk.table_name = 'ROOM' "
+                + "and fk.table_name = 'APPOINTMENT'", String.class);
+        assertThat(roomForeignKeys).containsExactly("FK_APPOINTMENT_ROOM");
+
+        // Hibernate's FK<hash> keys and their indexes are gone, only the named copies are left
+        assertThat(jdbc.queryForList("select constraint_name from information_schema.table_constraints "
+                + "where table_name = 'APPOINTMENT' and constraint_type = 'FOREIGN KEY'", String.class))
+                .containsExactlyInAnyOrder("FK_APPOINTMENT_PATIENT", "FK_APPOINTMENT_DOCTOR", "FK_APPOINTMENT_ROOM");
+        assertThat(jdbc.queryForList("select index_name from information_schema.indexes "
+                + "where table_name = 'APPOINTMENT'", String.class))
+                .noneMatch(index -> index.startsWith("FK") && !index.startsWith("FK_APPOINTMENT_"));
+    }
+}
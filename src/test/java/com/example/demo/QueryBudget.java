@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.function.Supplier;
+
+import com.example.demo.persistence.SqlStatementCounter;
+
+/**
+ * Locks in how many SQL statements a piece of work may run, e.g.
+ * {@code QueryBudget.assertStatements(1, () -> repoAppointments.findAll())}.
+ * Flush and clear the persistence context first so pending writes and cached entities
+ * don't skew the count.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static int countStatements(Runnable work) {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        try {
+            work.run();
+        } finally {
+            counter.stop();
+        }
+        return counter.getStatements();
+    }
+
+    public static <T> T assertStatements(int expected, Supplier<T> work) {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            counter.stop();
+        }
+        assertThat(counter.getStatements())
+                .as("SQL statements executed")
+                .isEqualTo(expected);
+        return result;
+    }
+
+    public static <T> T assertAtMostStatements(int max, Supplier<T> work) {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            counter.stop();
+        }
+        assertThat(counter.getStatements())
+                .as("SQL statements executed")
+                .isLessThanOrEqualTo(max);
+        return result;
+    }
+}
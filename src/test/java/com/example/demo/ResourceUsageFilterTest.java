@@ -0,0 +1,67 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.example.demo.controllers.DoctorController;
+import com.example.demo.filters.ResourceUsageFilter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ResourceUsageFilterTest {
+
+    @Test
+    void shouldRecordAllocationsPerHandler() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResourceUsageFilter filter = new ResourceUsageFilter(registry, true, true);
+
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                try {
+                    req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                            new HandlerMethod(new DoctorController(), "getAllDoctors"));
+                    byte[] page = new byte[1 << 20];
+                    res.getWriter().print(page.length);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/doctors"), response, chain);
+
+        DistributionSummary allocated = registry.get("http.server.requests.allocated")
+                .tag("handler", "DoctorController.getAllDoctors").summary();
+        assertThat(allocated.count()).isEqualTo(1);
+        assertThat(allocated.totalAmount()).isGreaterThan(1 << 20);
+        assertThat(registry.get("http.server.requests.cpu").tag("handler", "DoctorController.getAllDoctors")
+                .timer().count()).isEqualTo(1);
+        assertThat(Long.parseLong(response.getHeader(ResourceUsageFilter.ALLOCATED_HEADER))).isGreaterThan(1 << 20);
+        assertThat(response.getHeader(ResourceUsageFilter.CPU_HEADER)).isNotNull();
+    }
+
+    @Test
+    void shouldLeaveNonApiRequestsAlone() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResourceUsageFilter filter = new ResourceUsageFilter(registry, true, true);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+
+        assertThat(registry.getMeters()).isEmpty();
+        assertThat(response.getHeader(ResourceUsageFilter.ALLOCATED_HEADER)).isNull();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.BookingLogEntry;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.BookingLogRepository;
+import com.example.demo.schedule.BookingSchedule;
+import com.example.demo.schedule.RoomSchedule;
+import com.example.demo.schedule.ScheduleSnapshot;
+
+class RoomScheduleTest {
+
+    @Test
+    void shouldFindTheSameConflictsAsAScanOfEveryAppointment() {
+        Random random = new Random(7);
+        RoomSchedule schedule = new RoomSchedule();
+        List<int[]> booked = book(schedule, random, 0, 500);
+        cancelEveryThird(schedule, booked, 0);
+
+        assertSameConflicts(schedule, booked, random);
+    }
+
+    @Test
+    void shouldFindTheSameConflictsInAMappedSnapshot(@TempDir Path dir) throws Exception {
+        Random random = new Random(11);
+        RoomSchedule schedule = new RoomSchedule();
+        List<int[]> booked = book(schedule, random, 0, 500);
+        Path file = dir.resolve("schedule.snapshot");
+        ScheduleSnapshot.write(file, Collections.singletonMap(3, schedule), 0);
+
+        ScheduleSnapshot snapshot = ScheduleSnapshot.open(file);
+        assertThat(snapshot.count()).isEqualTo(500);
+        assertThat(snapshot.maxAppointmentId()).isEqualTo(499);
+        Map<Integer, RoomSchedule> rooms = snapshot.rooms();
+        assertThat(rooms).containsOnlyKeys(3);
+
+        // Cancel snapshot rows and book on top of them, then save and map again
+        RoomSchedule mapped = rooms.get(3);
+        cancelEveryThird(mapped, booked, 0);
+        booked.addAll(book(mapped, random, 500, 200));
+        cancelEveryThird(mapped, booked, 500);
+        assertSameConflicts(mapped, booked, random);
+
+        ScheduleSnapshot.write(file, rooms, 0);
+        RoomSchedule remapped = ScheduleSnapshot.open(file).rooms().get(3);
+        assertThat(remapped.size()).isEqualTo(mapped.size());
+        assertSameConflicts(remapped, booked, random);
+    }
+
+    @Test
+    void shouldReplayTheBookingLogOnTopOfTheSnapshotInsteadOfReadingEveryAppointment(@TempDir Path dir) {
+        String file = dir.resolve("schedule.snapshot").toString();
+        AppointmentRepository repository = mock(AppointmentRepository.class);
+        BookingLogRepository bookingLog = mock(BookingLogRepository.class);
+        when(repository.findScheduleRows()).thenReturn(Arrays.asList(
+                new Object[] {1L, 1, 600, 660}, new Object[] {2L, 2, 600, 660}));
+        when(bookingLog.lastId()).thenReturn(10L);
+
+        BookingSchedule first = bookingSchedule(repository, bookingLog, file);
+        assertThat(first.forRoom(1).findConflict(630, 690)).isEqualTo(1L);
+        assertThat(Files.exists(dir.resolve("schedule.snapshot"))).isTrue();
+
+        // Since then: 3 booked, 2 cancelled, and 1 booked again by an entry the snapshot already had
+        AppointmentRepository restarted = mock(AppointmentRepository.class);
+        BookingLogRepository restartedLog = mock(BookingLogRepository.class);
+        when(restartedLog.findReplayRowsByIdGreaterThan(10L)).thenReturn(Arrays.asList(
+                new Object[] {11L, BookingLogEntry.BOOKED, 3L, 1, 720, 780},
+                new Object[] {12L, BookingLogEntry.CANCELLED, 2L, 2, 600, 660},
+                new Object[] {13L, BookingLogEntry.BOOKED, 1L, 1, 600, 660}));
+        when(restarted.countByRoomIsNotNull()).thenReturn(2L);
+
+        BookingSchedule second = bookingSchedule(restarted, restartedLog, file);
+        assertThat(second.forRoom(1).findConflict(630, 690)).isEqualTo(1L);
+        assertThat(second.forRoom(1).findConflict(750, 810)).isEqualTo(3L);
+        assertThat(second.forRoom(2).size()).isZero();
+        verify(restarted, never()).findScheduleRows();
+
+        // Something wrote to the table without the log: reload everything
+        AppointmentRepository bypassed = mock(AppointmentRepository.class);
+        BookingLogRepository bypassedLog = mock(BookingLogRepository.class);
+        when(bypassedLog.findReplayRowsByIdGreaterThan(anyLong())).thenReturn(Collections.emptyList());
+        when(bypassed.countByRoomIsNotNull()).thenReturn(3L);
+        when(bypassed.findScheduleRows()).thenReturn(Arrays.asList(
+                new Object[] {1L, 1, 600, 660}, new Object[] {3L, 1, 720, 780}, new Object[] {4L, 2, 900, 960}));
+
+        BookingSchedule third = bookingSchedule(bypassed, bypassedLog, file);
+        assertThat(third.forRoom(2).findConflict(930, 990)).isEqualTo(4L);
+        verify(bypassed).findScheduleRows();
+    }
+
+    private static BookingSchedule bookingSchedule(AppointmentRepository repository, BookingLogRepository bookingLog,
+            String snapshotFile) {
+        BookingSchedule schedule = new BookingSchedule();
+        ReflectionTestUtils.setField(schedule, "appointmentRepository", repository);
+        ReflectionTestUtils.setField(schedule, "bookingLogRepository", bookingLog);
+        ReflectionTestUtils.setField(schedule, "snapshotFile", snapshotFile);
+        return schedule;
+    }
+
+    /** Books {@code count} appointments with ids from {@code firstId}, a few of them irregular. */
+    private static List<int[]> book(RoomSchedule schedule, Random random, int firstId, int count) {
+        List<int[]> booked = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++) {
+            int starts = random.nextInt(10_000);
+            // Mostly regular lengths, plus a few rows that finish at or before they start
+            int finishes = random.nextInt(20) == 0 ? starts - random.nextInt(3) : starts + 5 + random.nextInt(120);
+            schedule.add(id, starts, finishes);
+            booked.add(new int[] {starts, finishes});
+        }
+        return booked;
+    }
+
+    private static void cancelEveryThird(RoomSchedule schedule, List<int[]> booked, int fromId) {
+        for (int id = fromId; id < booked.size(); id += 3) {
+            assertThat(schedule.remove(id, booked.get(id)[0])).isTrue();
+            booked.set(id, null);
+        }
+    }
+
+    private static void assertSameConflicts(RoomSchedule schedule, List<int[]> booked, Random random) {
+        for (int i = 0; i < 5_000; i++) {
+            int starts = random.nextInt(10_200) - 100;
+            int finishes = starts + 1 + random.nextInt(180);
+            boolean expected = booked.stream()
+                    .anyMatch(b -> b != null && Appointment.overlaps(b[0], b[1], starts, finishes));
+
+            long conflict = schedule.findConflict(starts, finishes);
+            assertThat(conflict != RoomSchedule.NONE).as("[%d, %d)", starts, finishes).isEqualTo(expected);
+            if (expected) {
+                int[] clash = booked.get((int) conflict);
+                assertThat(Appointment.overlaps(clash[0], clash[1], starts, finishes)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepTheOriginalOverlapRules() {
+        // Equal starts, equal finishes, and either end strictly inside the existing one
+        assertThat(Appointment.overlaps(600, 660, 600, 630)).isTrue();
+        assertThat(Appointment.overlaps(600, 660, 630, 660)).isTrue();
+        assertThat(Appointment.overlaps(600, 660, 570, 630)).isTrue();
+        assertThat(Appointment.overlaps(600, 660, 630, 690)).isTrue();
+        // Back to back is fine, and so, as before, is a booking that spans the whole existing one
+        assertThat(Appointment.overlaps(600, 660, 660, 720)).isFalse();
+        assertThat(Appointment.overlaps(600, 660, 540, 600)).isFalse();
+        assertThat(Appointment.overlaps(600, 660, 570, 690)).isFalse();
+    }
+}
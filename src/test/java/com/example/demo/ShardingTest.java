@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.persistence.RoomDirectory;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.sharding.Shards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.shards[0].url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[1].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[2].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+class ShardingTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private RoomDirectory roomDirectory;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @AfterEach
+    void clearAppointments() throws Exception {
+        mockMvc.perform(delete("/api/appointments")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldKeepEachRoomOnItsShardAndMergeListsAcrossShards() throws Exception {
+        String[] rooms = {"Dermatology", "Cardiology", "Radiology", "Oncology", "Neurology", "Pediatrics"};
+        LocalDateTime first = LocalDateTime.parse("08:00 02/05/2023", FORMATTER);
+
+        // Later rooms book earlier slots, so shard order and start order disagree
+        for (int i = 0; i < rooms.length; i++) {
+            LocalDateTime startsAt = first.plusHours(rooms.length - i);
+            book(rooms[i], startsAt).andExpect(status().isOk());
+        }
+        book("Dermatology", first.plusHours(rooms.length).plusMinutes(30)).andExpect(status().isNotAcceptable());
+
+        List<Integer> shardsUsed = new ArrayList<>();
+        for (String name : rooms) {
+            Room room = roomDirectory.find(name).get();
+            int shard = shards.shardOfRoom(room.getId());
+            shardsUsed.add(shard);
+            for (int s = 0; s < shards.count(); s++) {
+                JdbcTemplate jdbc = new JdbcTemplate(shards.dataSource(s));
+                assertThat(jdbc.queryForObject("select count(*) from room where id = ?", Integer.class, room.getId()))
+                        .as("room %s on shard %d", name, s).isEqualTo(1);
+                assertThat(jdbc.queryForObject("select count(*) from appointment where room_id = ?", Integer.class,
+                        room.getId())).as("appointments of %s on shard %d", name, s).isEqualTo(s == shard ? 1 : 0);
+            }
+        }
+        assertThat(shardsUsed).contains(0, 1, 2);
+
+        List<Appointment> all = appointmentRepository.findAll();
+        assertThat(all).hasSize(rooms.length);
+        assertThat(all).extracting(Appointment::getStartsAt).isSorted();
+        assertThat(appointmentRepository.count()).isEqualTo(rooms.length);
+
+        for (Appointment appointment : all) {
+            assertThat(shards.shardOfId(appointment.getId()))
+                    .isEqualTo(shards.shardOfRoom(appointment.getRoom().getId()));
+            mockMvc.perform(get("/api/appointments/" + appointment.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.room.roomName").value(appointment.getRoom().getRoomName()));
+        }
+
+        Appointment last = all.get(all.size() - 1);
+        mockMvc.perform(delete("/api/appointments/" + last.getId())).andExpect(status().isOk());
+        assertThat(appointmentRepository.existsById(last.getId())).isFalse();
+        assertThat(appointmentRepository.count()).isEqualTo(rooms.length - 1);
+    }
+
+    @Test
+    void shouldBookAnExistingPatientAndDoctorByIdInEveryRoom() throws Exception {
+        String[] rooms = {"Dermatology", "Cardiology", "Radiology", "Oncology", "Neurology", "Pediatrics"};
+        LocalDateTime first = LocalDateTime.parse("08:00 09/05/2023", FORMATTER);
+        Patient patient = objectMapper.readValue(mockMvc.perform(post("/api/patient")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Patient("Mariela", "Eric", 42, "m.eric@email.com"))))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString(), Patient.class);
+        Doctor doctor = objectMapper.readValue(mockMvc.perform(post("/api/doctor")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Doctor("Carina", "Zaray", 49, "c.zaray@hospital.accwe"))))
+                .andExpect(status().isCreated()).andReturn().getResponse().getContentAsString(), Doctor.class);
+
+        for (int i = 0; i < rooms.length; i++) {
+            String booking = "{\"patient\":{\"id\":" + patient.getId() + "},\"doctor\":{\"id\":" + doctor.getId()
+                    + "},\"room\":{\"roomName\":\"" + rooms[i] + "\"},\"startsAt\":\""
+                    + first.plusHours(i).format(FORMATTER) + "\",\"finishesAt\":\""
+                    + first.plusHours(i + 1).format(FORMATTER) + "\"}";
+            mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.patient.email").value("m.eric@email.com"));
+        }
+
+        // The patient and doctor saved with a booking can be booked by id in another room
+        LocalDateTime startsAt = first.plusDays(1);
+        MvcResult booked = book("Radiology", startsAt).andExpect(status().isOk()).andReturn();
+        Appointment appointment = objectMapper.readValue(booked.getResponse().getContentAsString(), Appointment.class);
+        String booking = "{\"patient\":{\"id\":" + appointment.getPatient().getId() + "},\"doctor\":{\"id\":"
+                + appointment.getDoctor().getId() + "},\"room\":{\"roomName\":\"Pediatrics\"},\"startsAt\":\""
+                + startsAt.format(FORMATTER) + "\",\"finishesAt\":\"" + startsAt.plusHours(1).format(FORMATTER) + "\"}";
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(booking))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/patients/" + appointment.getPatient().getId())).andExpect(status().isOk());
+    }
+
+    private ResultActions book(String roomName, LocalDateTime startsAt) throws Exception {
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room(roomName),
+                startsAt, startsAt.plusHours(1));
+        return mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.persistence.SingleFlight;
+
+class SingleFlightTest {
+
+    @Test
+    void shouldRunOneLoadForConcurrentCallersOfTheSameKey() throws Exception {
+        SingleFlight<Long, Optional<Doctor>> lookups = new SingleFlight<>();
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Doctor>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> lookups.load(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                awaitQuietly(release);
+                return Optional.of(doctor);
+            })));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> lookups.load(1L, () -> {
+                    loads.incrementAndGet();
+                    return Optional.empty();
+                })));
+            }
+            // Let the waiters reach the load in flight before it finishes
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Optional<Doctor>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(doctor);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Finished loads are not kept
+        assertThat(lookups.load(1L, Optional::empty)).isEmpty();
+    }
+
+    @Test
+    void shouldHandTheLoadFailureToEveryWaiterAndLoadAgainAfterwards() throws Exception {
+        SingleFlight<String, Integer> lookups = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> lookups.load("Dermatology", () -> {
+                loading.countDown();
+                awaitQuietly(release);
+                throw new IllegalStateException("database down");
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Integer> second = executor.submit(() -> lookups.load("Dermatology", () -> 2));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("database down");
+            assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("database down");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(lookups.load("Dermatology", () -> 3)).isEqualTo(3);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- What ddl-auto=update created for the original entities, foreign keys named by Hibernate
+create sequence hibernate_sequence start with 1 increment by 1;
+create table appointment (id bigint not null, finishes_at timestamp, starts_at timestamp, doctor_id bigint, patient_id bigint, room_id varchar(255), primary key (id));
+create table doctors (id bigint not null, age integer not null, email varchar(255), first_name varchar(255), last_name varchar(255), primary key (id));
+create table patient (id bigint not null, age integer not null, email varchar(255), first_name varchar(255), last_name varchar(255), primary key (id));
+create table room (room_name varchar(255) not null, primary key (room_name));
+alter table appointment add constraint FK51y2ce12yp0g0hgsa39p2u9jq foreign key (doctor_id) references doctors;
+alter table appointment add constraint FK4apif2ewfyf14077ichee8g06 foreign key (patient_id) references patient;
+alter table appointment add constraint FK8yxiq8d6ubccrih94xicd2l5b foreign key (room_id) references room;
+
+insert into doctors (id, age, email, first_name, last_name) values (1, 24, 'p.amalia@hospital.accwe', 'Perla', 'Amalia');
+insert into patient (id, age, email, first_name, last_name) values (2, 37, 'j.olaya@email.com', 'Jose Luis', 'Olaya');
+insert into room (room_name) values ('Dermatology'), ('Oncology');
+insert into appointment (id, finishes_at, starts_at, doctor_id, patient_id, room_id)
+values (3, '2023-04-24 20:30:00', '2023-04-24 19:30:00', 1, 2, 'Oncology');